@@ -0,0 +1,46 @@
+package com.jonathanfrosto.tdd.benchmarks;
+
+import com.jonathanfrosto.tdd.TddApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+
+import java.util.Arrays;
+
+// benchmarks run from the test classpath, so the test configurations must be kept out of the scan
+@Configuration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackageClasses = TddApplication.class)
+@ComponentScan(basePackageClasses = TddApplication.class, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ANNOTATION, classes = TestConfiguration.class),
+        @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = TddApplication.class)
+})
+class BenchmarkApplication {
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return run(WebApplicationType.NONE, properties);
+    }
+
+    static ConfigurableApplicationContext startWeb(String... properties) {
+        return run(WebApplicationType.SERVLET, properties);
+    }
+
+    private static ConfigurableApplicationContext run(WebApplicationType type, String... properties) {
+        // devtools would relaunch main without its arguments, and it only reads this flag from system properties
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(type)
+                .properties("spring.main.banner-mode=off",
+                        "logging.level.root=warn",
+                        "spring.jpa.show-sql=false",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_ON_EXIT=FALSE")
+                // overrides go in as arguments, default properties would lose to application.properties
+                .run(Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new));
+    }
+}
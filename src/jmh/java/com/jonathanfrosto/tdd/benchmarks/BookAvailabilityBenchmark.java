@@ -0,0 +1,80 @@
+package com.jonathanfrosto.tdd.benchmarks;
+
+import com.jonathanfrosto.tdd.domain.dto.BookAvailabilityDTO;
+import com.jonathanfrosto.tdd.services.LoanService;
+import com.jonathanfrosto.tdd.services.availability.BookAvailabilityIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BookAvailabilityBenchmark {
+
+    private static final int BOOKS = 1_000_000;
+
+    @Param({"100", "5000"})
+    int ids;
+
+    ConfigurableApplicationContext context;
+    LoanService loanService;
+    NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("book.availability.reconcile.enabled=false");
+        loanService = context.getBean(LoanService.class);
+        namedJdbcTemplate = context.getBean(NamedParameterJdbcTemplate.class);
+
+        // every third book is on loan
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("insert into book (id, name, isbn, author) " +
+                "select x, 'Book ' || x, 'isbn-' || x, 'Author ' || mod(x, 100) from system_range(1, ?)", BOOKS);
+        jdbcTemplate.update("insert into loan (id, customer, id_book, loan_date, returned) " +
+                "select x, 'customer-' || x, x, current_date, false from system_range(1, ?) where mod(x, 3) = 0", BOOKS);
+        jdbcTemplate.execute("analyze");
+
+        BookAvailabilityIndex index = context.getBean(BookAvailabilityIndex.class);
+        long start = System.nanoTime();
+        index.rebuild();
+        System.out.printf("%nrebuilt %d loaned books in %d ms%n", index.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BookAvailabilityDTO index() {
+        return loanService.findAvailability(randomIds());
+    }
+
+    // what the endpoint would cost without the index: one query over the unique open-loan index
+    @Benchmark
+    public List<Long> query() {
+        return namedJdbcTemplate.queryForList("select active_book_id from loan where active_book_id in (:ids)",
+                Collections.singletonMap("ids", randomIds()), Long.class);
+    }
+
+    private List<Long> randomIds() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Long> bookIds = new ArrayList<>(ids);
+        for (int i = 0; i < ids; i++) {
+            bookIds.add(random.nextLong(BOOKS) + 1);
+        }
+        return bookIds;
+    }
+}
@@ -0,0 +1,82 @@
+package com.jonathanfrosto.tdd.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// one reading list page view: a GET per book against a single GET /book/batch, over real HTTP
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BookLookupBenchmark {
+
+    private static final int BOOKS = 100_000;
+
+    @Param({"50", "200"})
+    int booksPerPage;
+
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startWeb("server.port=0");
+        context.getBean(JdbcTemplate.class).update("insert into book (id, name, isbn, author) " +
+                "select x, 'Book ' || x, 'isbn-' || x, 'Author ' || mod(x, 100) from system_range(1, ?)", BOOKS);
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/book/";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int perBook() throws IOException, InterruptedException {
+        long first = firstId();
+        int bytes = 0;
+        for (long id = first; id < first + booksPerPage; id++) {
+            bytes += get(baseUrl + id).length();
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public int batch() throws IOException, InterruptedException {
+        long first = firstId();
+        String ids = LongStream.range(first, first + booksPerPage)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+        return get(baseUrl + "batch?ids=" + ids).length();
+    }
+
+    private long firstId() {
+        return ThreadLocalRandom.current().nextLong(BOOKS - booksPerPage) + 1;
+    }
+
+    private String get(String url) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(url + " answered " + response.statusCode());
+        }
+        return response.body();
+    }
+}
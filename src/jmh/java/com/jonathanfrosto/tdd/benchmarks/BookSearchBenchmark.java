@@ -0,0 +1,95 @@
+package com.jonathanfrosto.tdd.benchmarks;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.mappers.BookMapper;
+import com.jonathanfrosto.tdd.services.search.BookSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BookSearchBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ra", "te", "su", "no", "vi", "de", "ba",
+            "re", "to", "ma", "li", "sa", "po", "ne", "gu", "fa", "ti"};
+    private static final int WORDS = 50_000;
+    private static final int AUTHORS = 20_000;
+    private static final Pageable PAGE = PageRequest.of(0, 20);
+
+    @Param({"1000000"})
+    int books;
+
+    BookSearchIndex index;
+    List<String> words;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        words = new ArrayList<>(WORDS);
+        for (int i = 0; i < WORDS; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int syllables = 2 + random.nextInt(3); syllables > 0; syllables--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words.add(word.toString());
+        }
+
+        index = new BookSearchIndex(null, new BookMapper(), 20, 1000);
+        List<Book> batch = new ArrayList<>(10_000);
+        for (long id = 1; id <= books; id++) {
+            String name = word(random) + " " + word(random) + " " + word(random);
+            String author = words.get(random.nextInt(AUTHORS)) + " " + words.get(random.nextInt(AUTHORS));
+            batch.add(Book.builder().id(id).name(name).author(author).isbn("isbn-" + id).build());
+            if (batch.size() == 10_000) {
+                index.index(batch);
+                batch = new ArrayList<>(10_000);
+            }
+        }
+        index.index(batch);
+        System.out.printf("%nindexed %d books, %d terms%n", index.size(), index.terms());
+    }
+
+    @Benchmark
+    public Slice<BookDTO> exactWord() {
+        return index.search(randomWord(), PAGE);
+    }
+
+    @Benchmark
+    public Slice<BookDTO> twoWords() {
+        return index.search(randomWord() + " " + randomWord(), PAGE);
+    }
+
+    @Benchmark
+    public Slice<BookDTO> prefix() {
+        String word = randomWord();
+        return index.search(word.substring(0, word.length() - 2), PAGE);
+    }
+
+    @Benchmark
+    public Slice<BookDTO> typo() {
+        String word = randomWord();
+        int at = word.length() / 2;
+        return index.search(word.substring(0, at) + word.substring(at + 1), PAGE);
+    }
+
+    private String word(Random random) {
+        return words.get(random.nextInt(words.size()));
+    }
+
+    private String randomWord() {
+        return words.get(ThreadLocalRandom.current().nextInt(words.size()));
+    }
+}
@@ -0,0 +1,80 @@
+package com.jonathanfrosto.tdd.benchmarks;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.metrics.StatementCounter;
+import com.jonathanfrosto.tdd.services.BookService;
+import com.jonathanfrosto.tdd.services.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EntityCacheBenchmark {
+
+    private static final int BOOKS = 10_000;
+
+    @Param({"true", "false"})
+    boolean secondLevelCache;
+
+    ConfigurableApplicationContext context;
+    BookService bookService;
+    LoanService loanService;
+    List<BookDTO> books;
+
+    long operations;
+    long statements;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // the isbn cache is switched off so every checkout reaches the repository
+        context = BenchmarkApplication.start(
+                "book.cache.isbn.maximum-size=0",
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=" + secondLevelCache,
+                "spring.jpa.properties.hibernate.cache.use_query_cache=" + secondLevelCache);
+        bookService = context.getBean(BookService.class);
+        loanService = context.getBean(LoanService.class);
+
+        List<BookDTO> catalog = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            catalog.add(BookDTO.builder().name("Book " + i).author("Author " + (i % 100)).isbn("isbn-" + i).build());
+        }
+        bookService.saveAll(catalog);
+
+        books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(bookService.findByIsbn("isbn-" + i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nsecondLevelCache=%s: %.2f statements/op%n", secondLevelCache, (double) statements / operations);
+        context.close();
+    }
+
+    // a desk looks the book up, lends it and takes it back
+    @Benchmark
+    public LoanDTO loanRoundTrip() {
+        BookDTO book = books.get(ThreadLocalRandom.current().nextInt(BOOKS));
+
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            bookService.getById(book.getId());
+            LoanDTO loan = loanService.save(LoanDTO.builder().isbn(book.getIsbn()).customer("walk-in").build());
+            loanService.giveBackBook(loan.getId());
+
+            operations++;
+            statements += scope.count();
+            return loan;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.jonathanfrosto.tdd.benchmarks;
+
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.services.LoanService;
+import com.jonathanfrosto.tdd.services.checkout.GroupCommitLoanWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// opening-time burst: many desks check out distinct books at once, synchronously or through the group-commit writer
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GroupCommitBenchmark {
+
+    private static final int BOOKS = 1_000_000;
+
+    @Param({"false", "true"})
+    boolean groupCommit;
+
+    ConfigurableApplicationContext context;
+    LoanService loanService;
+    GroupCommitLoanWriter groupCommitLoanWriter;
+    JdbcTemplate jdbcTemplate;
+
+    final AtomicLong next = new AtomicLong();
+    final AtomicLong conflicts = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("loan.group-commit.enabled=" + groupCommit);
+        loanService = context.getBean(LoanService.class);
+        groupCommitLoanWriter = groupCommit ? context.getBean(GroupCommitLoanWriter.class) : null;
+
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("insert into book (id, name, isbn, author) " +
+                "select x, 'Book ' || x, 'isbn-' || x, 'Author ' || mod(x, 100) from system_range(1, ?)", BOOKS);
+    }
+
+    // every iteration starts with the whole catalog on the shelf
+    @Setup(Level.Iteration)
+    public void giveBackAll() {
+        jdbcTemplate.update("update loan set returned = true where returned = false");
+        next.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DistributionSummary batches = context.getBean(MeterRegistry.class).find("loan.group-commit.batch.size").summary();
+        System.out.printf("%ngroupCommit=%s: %d conflicts, mean batch %.1f%n", groupCommit, conflicts.get(),
+                batches == null ? 1.0 : batches.mean());
+        context.close();
+    }
+
+    @Benchmark
+    public LoanDTO checkout() {
+        LoanDTO loan = LoanDTO.builder()
+                .isbn("isbn-" + (next.getAndIncrement() % BOOKS + 1))
+                .customer("desk-" + Thread.currentThread().getId())
+                .build();
+
+        try {
+            return groupCommit ? groupCommitLoanWriter.save(loan) : loanService.save(loan);
+        } catch (BusinessException e) {
+            conflicts.incrementAndGet();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.jonathanfrosto.tdd.benchmarks;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.util.ClassUtils;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// not a JMH benchmark: drives the same HTTP load against the servlet app, the servlet app with request offloading
+// and, when built with -Preactive, the WebFlux + R2DBC app, and compares throughput, tail latency, errors, thread
+// count and heap. run with
+// -Dbenchmark.main=com.jonathanfrosto.tdd.benchmarks.HttpLoadTest -Dbenchmark.args="<concurrency> <seconds> [modes]"
+public class HttpLoadTest {
+
+    private static final String REACTIVE_APPLICATION = "com.jonathanfrosto.tdd.reactive.ReactiveTddApplication";
+    private static final int BOOKS = 10_000;
+    private static final int LOANS = 200_000;
+    private static final int POOL_SIZE = 8;
+
+    enum Mode {
+        SERVLET, OFFLOAD, REACTIVE
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+        List<Mode> modes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            modes.add(Mode.valueOf(args[i].toUpperCase()));
+        }
+        if (modes.isEmpty()) {
+            modes.addAll(List.of(Mode.SERVLET, Mode.OFFLOAD));
+            if (ClassUtils.isPresent(REACTIVE_APPLICATION, null)) {
+                modes.add(Mode.REACTIVE);
+            }
+        }
+
+        for (Mode mode : modes) {
+            run(mode, concurrency, seconds);
+        }
+    }
+
+    private static void run(Mode mode, int concurrency, int seconds) throws Exception {
+        String database = "load-" + mode.name().toLowerCase();
+        String jdbcUrl = "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1";
+
+        ConfigurableApplicationContext context = start(mode, concurrency, database, jdbcUrl);
+        try {
+            seed(jdbcUrl);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            // the servlet endpoint pages, the reactive one streams every loan of the book, which is LOANS / BOOKS rows
+            String query = mode == Mode.REACTIVE ? "" : "?size=" + LOANS / BOOKS + "&count=false";
+
+            // warm up the JIT and the connection pools before measuring
+            drive(port, query, concurrency, Math.max(5, seconds / 3));
+            Result result = drive(port, query, concurrency, seconds);
+
+            System.out.printf("%n%s concurrency=%d%n", mode, concurrency);
+            System.out.printf("  throughput %.1f req/s, errors %d%n", result.completed / (double) seconds, result.errors.get());
+            System.out.printf("  latency p50 %.1f ms, p99 %.1f ms%n", result.percentile(50), result.percentile(99));
+            System.out.printf("  peak JVM threads %d, peak heap %d MB%n", result.peakThreads, result.peakHeap >> 20);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext start(Mode mode, int concurrency, String database, String jdbcUrl)
+            throws ClassNotFoundException {
+        if (mode == Mode.REACTIVE) {
+            System.setProperty("spring.devtools.restart.enabled", "false");
+            // arguments rather than default properties, which would lose against application-reactive.properties
+            return new SpringApplicationBuilder(ClassUtils.forName(REACTIVE_APPLICATION, null))
+                    .web(WebApplicationType.REACTIVE)
+                    .profiles("reactive")
+                    .run("--spring.main.banner-mode=off",
+                            "--logging.level.root=warn",
+                            "--server.port=0",
+                            "--spring.r2dbc.url=r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1",
+                            "--spring.r2dbc.pool.initial-size=" + POOL_SIZE,
+                            "--spring.r2dbc.pool.max-size=" + POOL_SIZE,
+                            "--spring.flyway.url=" + jdbcUrl);
+        }
+
+        return BenchmarkApplication.startWeb(
+                "server.port=0",
+                "server.tomcat.threads.max=32",
+                "server.tomcat.accept-count=" + concurrency,
+                "spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                "spring.datasource.url=" + jdbcUrl,
+                "request-offload.enabled=" + (mode == Mode.OFFLOAD),
+                "request-offload.threads=16",
+                "request-offload.queue-capacity=" + concurrency * 4);
+    }
+
+    private static void seed(String jdbcUrl) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, "sa", "")) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            jdbcTemplate.update("insert into book (id, name, isbn, author) " +
+                    "select x, 'Book ' || x, 'isbn-' || x, 'Author ' || mod(x, 100) from system_range(1, ?)", BOOKS);
+            jdbcTemplate.update("insert into loan (id, customer, id_book, loan_date, returned) " +
+                            "select x, 'customer-' || mod(x, 1000), mod(x, ?) + 1, dateadd('DAY', -mod(x, 3650), current_date), x <= ? " +
+                            "from system_range(1, ?)",
+                    BOOKS, LOANS - BOOKS, LOANS);
+            jdbcTemplate.execute("analyze");
+        }
+    }
+
+    private static Result drive(int port, String query, int concurrency, int seconds) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        Semaphore inFlight = new Semaphore(concurrency);
+        Result result = new Result();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(result::sample, 0, 100, TimeUnit.MILLISECONDS);
+
+        try {
+            while (System.nanoTime() < deadline) {
+                inFlight.acquire();
+                long bookId = ThreadLocalRandom.current().nextLong(BOOKS) + 1;
+                HttpRequest request = HttpRequest.newBuilder(URI.create(
+                        "http://localhost:" + port + "/book/" + bookId + "/loans" + query))
+                        .timeout(Duration.ofSeconds(30))
+                        .build();
+                long start = System.nanoTime();
+                CompletableFuture<HttpResponse<Void>> response = client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+                response.whenComplete((r, e) -> {
+                    inFlight.release();
+                    if (e != null || r.statusCode() != 200) {
+                        result.errors.incrementAndGet();
+                    } else {
+                        result.record(System.nanoTime() - start);
+                    }
+                });
+            }
+            inFlight.acquire(concurrency);
+            result.sample();
+        } finally {
+            sampler.shutdownNow();
+        }
+        return result;
+    }
+
+    private static class Result {
+
+        private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger errors = new AtomicInteger();
+        private final AtomicLong peakHeapBytes = new AtomicLong();
+        private long completed;
+        private int peakThreads;
+        private long peakHeap;
+
+        void record(long nanos) {
+            latencies.add(nanos);
+        }
+
+        void sample() {
+            long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            peakHeapBytes.accumulateAndGet(used, Math::max);
+            peakThreads = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+            peakHeap = peakHeapBytes.get();
+            completed = latencies.size();
+        }
+
+        double percentile(int percentile) {
+            List<Long> sorted;
+            synchronized (latencies) {
+                sorted = new ArrayList<>(latencies);
+            }
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            Collections.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+            return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.jonathanfrosto.tdd.benchmarks;
+
+import com.jonathanfrosto.tdd.domain.dto.BookLoanStatsDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanStatsDTO;
+import com.jonathanfrosto.tdd.services.LoanStatsService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class LoanStatsBenchmark {
+
+    private static final int BOOKS = 100_000;
+    private static final int TOP = 10;
+
+    @Param({"1000000"})
+    int loans;
+
+    ConfigurableApplicationContext context;
+    LoanStatsService loanStatsService;
+    JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("stats.flush.enabled=false", "book.availability.reconcile.enabled=false");
+        loanStatsService = context.getBean(LoanStatsService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        // loans spread over the last year, low book ids are loaned more often
+        jdbcTemplate.update("insert into book (id, name, isbn, author) " +
+                "select x, 'Book ' || x, 'isbn-' || x, 'Author ' || mod(x, 100) from system_range(1, ?)", BOOKS);
+        jdbcTemplate.update("insert into loan (id, customer, id_book, loan_date, returned) " +
+                        "select x, 'customer-' || mod(x, 1000), mod(x, mod(x, ?) + 1) + 1, " +
+                        "dateadd('DAY', -mod(x, 365), current_date), true from system_range(1, ?)",
+                BOOKS, loans);
+
+        // what V6 backfills from the loan table
+        jdbcTemplate.update("insert into book_loan_stats (id_book, loans) select id_book, count(*) from loan group by id_book");
+        jdbcTemplate.update("insert into daily_loan_stats (stats_date, checkouts, returns) " +
+                "select loan_date, count(*), 0 from loan group by loan_date");
+        jdbcTemplate.execute("analyze");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BookLoanStatsDTO> topBooks() {
+        return loanStatsService.findTopBooks(TOP);
+    }
+
+    // what GET /stats/books/top would cost without the stats table, the always true random bound keeps H2 from
+    // answering with the result of the previous run
+    @Benchmark
+    public List<Map<String, Object>> topBooksQuery() {
+        return jdbcTemplate.queryForList("select b.id, b.isbn, b.name, count(*) loans from loan l " +
+                        "join book b on b.id = l.id_book where l.id > ? " +
+                        "group by b.id, b.isbn, b.name order by loans desc, b.id limit " + TOP,
+                -ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+
+    @Benchmark
+    public LoanStatsDTO daily() {
+        return loanStatsService.findDaily(null, null);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> dailyQuery() {
+        return jdbcTemplate.queryForList("select loan_date, count(*) checkouts from loan " +
+                "where loan_date > dateadd('DAY', -30, current_date) group by loan_date order by loan_date");
+    }
+}
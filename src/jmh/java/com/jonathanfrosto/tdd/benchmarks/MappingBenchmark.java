@@ -0,0 +1,104 @@
+package com.jonathanfrosto.tdd.benchmarks;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.entities.Loan;
+import com.jonathanfrosto.tdd.domain.mappers.BookMapper;
+import com.jonathanfrosto.tdd.domain.mappers.LoanMapper;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    private static final Type BOOK_LIST = new TypeToken<List<BookDTO>>() {
+    }.getType();
+
+    private static final Type LOAN_LIST = new TypeToken<List<LoanDTO>>() {
+    }.getType();
+
+    @Param({"20", "100"})
+    int pageSize;
+
+    ModelMapper modelMapper;
+    BookMapper bookMapper;
+    LoanMapper loanMapper;
+
+    List<Book> books;
+    List<Loan> loans;
+    LoanFilterDTO filter;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        bookMapper = new BookMapper();
+        loanMapper = new LoanMapper();
+
+        books = new ArrayList<>(pageSize);
+        loans = new ArrayList<>(pageSize);
+        for (long i = 0; i < pageSize; i++) {
+            Book book = Book.builder()
+                    .id(i)
+                    .name("Book " + i)
+                    .author("Author " + i)
+                    .isbn("isbn-" + i)
+                    .build();
+
+            books.add(book);
+            loans.add(Loan.builder()
+                    .id(i)
+                    .customer("customer-" + i)
+                    .book(book)
+                    .loanDate(LocalDate.now())
+                    .build());
+        }
+
+        filter = new LoanFilterDTO();
+        filter.setCustomer("customer-1");
+        filter.setIsbn("isbn-1");
+    }
+
+    @Benchmark
+    public List<BookDTO> modelMapperBookPage() {
+        return modelMapper.map(books, BOOK_LIST);
+    }
+
+    @Benchmark
+    public List<BookDTO> bookMapperBookPage() {
+        return bookMapper.toDtos(books);
+    }
+
+    @Benchmark
+    public List<LoanDTO> modelMapperLoanPage() {
+        return modelMapper.map(loans, LOAN_LIST);
+    }
+
+    @Benchmark
+    public List<LoanDTO> loanMapperLoanPage() {
+        return loanMapper.toDtos(loans);
+    }
+
+    @Benchmark
+    public Loan modelMapperLoanExample() {
+        return modelMapper.map(filter, Loan.class);
+    }
+
+    @Benchmark
+    public Loan loanMapperLoanExample() {
+        return loanMapper.toExample(filter);
+    }
+}
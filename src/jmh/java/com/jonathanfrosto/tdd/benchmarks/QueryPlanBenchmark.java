@@ -0,0 +1,117 @@
+package com.jonathanfrosto.tdd.benchmarks;
+
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.entities.Loan;
+import com.jonathanfrosto.tdd.repositories.BookRepository;
+import com.jonathanfrosto.tdd.repositories.LoanRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Example;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class QueryPlanBenchmark {
+
+    private static final int BOOKS = 100_000;
+    private static final int CUSTOMERS = 100_000;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000000"})
+    int loans;
+
+    ConfigurableApplicationContext context;
+    BookRepository bookRepository;
+    LoanRepository loanRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        bookRepository = context.getBean(BookRepository.class);
+        loanRepository = context.getBean(LoanRepository.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("insert into book (id, name, isbn, author) " +
+                "select x, 'Book ' || x, 'isbn-' || x, 'Author ' || mod(x, 100) from system_range(1, ?)", BOOKS);
+
+        // every book is loaned loans / BOOKS times and only its latest loan is still open
+        jdbcTemplate.update("insert into loan (id, customer, id_book, loan_date, returned) " +
+                        "select x, 'customer-' || mod(x, ?), mod(x, ?) + 1, dateadd('DAY', -mod(x, 3650), current_date), x <= ? " +
+                        "from system_range(1, ?)",
+                CUSTOMERS, BOOKS, loans - BOOKS, loans);
+        jdbcTemplate.execute("analyze");
+
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("findByIsbn", "select * from book where isbn = 'isbn-42'");
+        queries.put("existsByBookAndReturnedFalse", "select id from loan where id_book = 42 and returned = false limit 1");
+        queries.put("findByBookIdAfter", "select l.id, b.isbn, l.customer, l.loan_date, l.returned " +
+                "from loan l left join book b on b.id = l.id_book " +
+                "where l.id_book = 42 order by l.loan_date, l.id limit " + PAGE_SIZE);
+        queries.put("findByExampleAfter(customer)", "select l.id, b.isbn, l.customer, l.loan_date, l.returned " +
+                "from loan l left join book b on b.id = l.id_book " +
+                "where l.customer = 'customer-42' and l.returned = false order by l.loan_date, l.id limit " + PAGE_SIZE);
+        queries.put("findByCustomerAfter(open)", "select l.id, b.isbn, l.customer, l.loan_date, l.returned " +
+                "from loan l left join book b on b.id = l.id_book " +
+                "where l.customer = 'customer-42' and l.returned = false order by l.loan_date, l.id limit " + PAGE_SIZE);
+        queries.put("findOpenBetween(overdue scan)", "select l.id, b.isbn, l.customer, l.loan_date, l.returned " +
+                "from loan l left join book b on b.id = l.id_book " +
+                "where l.returned = false and l.loan_date >= dateadd('DAY', -15, current_date) " +
+                "and l.loan_date < dateadd('DAY', -14, current_date) order by l.loan_date, l.id limit " + PAGE_SIZE);
+        queries.forEach((name, sql) -> System.out.printf("%n%s%n%s%n", name,
+                jdbcTemplate.queryForObject("explain " + sql, String.class)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Book> findByIsbn() {
+        return bookRepository.findByIsbn("isbn-" + (ThreadLocalRandom.current().nextInt(BOOKS) + 1));
+    }
+
+    @Benchmark
+    public boolean existsActiveLoan() {
+        Book book = Book.builder().id(ThreadLocalRandom.current().nextLong(BOOKS) + 1).build();
+        return loanRepository.existsByBookAndReturnedFalse(book);
+    }
+
+    @Benchmark
+    public List<LoanDTO> findLoansByBook() {
+        long bookId = ThreadLocalRandom.current().nextLong(BOOKS) + 1;
+        return loanRepository.findByBookIdAfter(bookId, KeysetCursor.first(), PAGE_SIZE + 1);
+    }
+
+    @Benchmark
+    public List<LoanDTO> findOpenLoansByCustomer() {
+        String customer = "customer-" + ThreadLocalRandom.current().nextInt(CUSTOMERS);
+        return loanRepository.findByCustomerAfter(customer, false, KeysetCursor.first(), PAGE_SIZE + 1);
+    }
+
+    @Benchmark
+    public List<LoanDTO> findOverdueLoans() {
+        LocalDate cutoff = LocalDate.now().minusDays(14);
+        return loanRepository.findOpenBetween(cutoff.minusDays(1), cutoff, KeysetCursor.first(), PAGE_SIZE + 1);
+    }
+
+    @Benchmark
+    public List<LoanDTO> findLoansByCustomer() {
+        Loan probe = Loan.builder().customer("customer-" + ThreadLocalRandom.current().nextInt(CUSTOMERS)).build();
+        return loanRepository.findByExampleAfter(Example.of(probe), KeysetCursor.first(), PAGE_SIZE + 1);
+    }
+}
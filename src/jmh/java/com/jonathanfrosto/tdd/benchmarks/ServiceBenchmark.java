@@ -0,0 +1,96 @@
+package com.jonathanfrosto.tdd.benchmarks;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookImportResultDTO;
+import com.jonathanfrosto.tdd.services.BookService;
+import com.jonathanfrosto.tdd.services.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ServiceBenchmark {
+
+    private static final int BOOKS = 10_000;
+    private static final int LOANS_PER_CUSTOMER = 50;
+
+    @Param({"20"})
+    int pageSize;
+
+    ConfigurableApplicationContext context;
+    BookService bookService;
+    LoanService loanService;
+
+    Pageable pageable;
+    BookDTO bookFilter;
+    LoanFilterDTO loanFilter;
+
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        bookService = context.getBean(BookService.class);
+        loanService = context.getBean(LoanService.class);
+
+        List<BookDTO> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(BookDTO.builder()
+                    .name("Book " + i)
+                    .author("Author " + (i % 100))
+                    .isbn("isbn-" + i)
+                    .build());
+        }
+        List<BookImportResultDTO> imported = bookService.saveAll(books);
+
+        // a slice of the catalog stays loaned so the loan filter has rows to page through
+        for (int i = 0; i < LOANS_PER_CUSTOMER; i++) {
+            loanService.save(LoanDTO.builder().isbn(imported.get(i).getIsbn()).customer("regular").build());
+        }
+
+        pageable = PageRequest.of(0, pageSize);
+        bookFilter = BookDTO.builder().author("Author 7").build();
+        loanFilter = new LoanFilterDTO();
+        loanFilter.setCustomer("regular");
+        next = LOANS_PER_CUSTOMER;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<BookDTO> findBooks() {
+        return bookService.find(bookFilter, pageable);
+    }
+
+    @Benchmark
+    public Page<LoanDTO> findLoans() {
+        return loanService.find(loanFilter, pageable);
+    }
+
+    @Benchmark
+    public LoanDTO saveLoan() {
+        // save and give back so the same catalog can be loaned on every invocation
+        String isbn = "isbn-" + next;
+        next = next + 1 == BOOKS ? LOANS_PER_CUSTOMER : next + 1;
+
+        LoanDTO loan = loanService.save(LoanDTO.builder().isbn(isbn).customer("walk-in").build());
+        loanService.giveBackBook(loan.getId());
+        return loan;
+    }
+}
@@ -1,18 +1,11 @@
 package com.jonathanfrosto.tdd;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class TddApplication {
 
-	@Bean
-	ModelMapper getModelMapper() {
-		return new ModelMapper();
-	}
-
 	public static void main(String[] args) {
 		SpringApplication.run(TddApplication.class, args);
 	}
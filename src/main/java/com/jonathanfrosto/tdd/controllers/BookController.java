@@ -1,27 +1,63 @@
 package com.jonathanfrosto.tdd.controllers;
 
+import com.jonathanfrosto.tdd.domain.dto.BookAvailabilityDTO;
 import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookImportResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookLookupResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.ExportFormat;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
 import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.services.BookImportService;
 import com.jonathanfrosto.tdd.services.BookService;
+import com.jonathanfrosto.tdd.services.ExportService;
 import com.jonathanfrosto.tdd.services.LoanService;
-import org.springframework.data.domain.Page;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.jonathanfrosto.tdd.services.impl.BookServiceImpl.BOOK_CHANGED;
 
 @RestController
 @RequestMapping("book")
 public class BookController {
 
+    private static final Pattern STRONG_ETAG = Pattern.compile("\"(\\d+)\"");
+
     private final BookService bookService;
     private final LoanService loanService;
+    private final BookImportService bookImportService;
+    private final ExportService exportService;
+    private final CacheControl cacheControl;
 
-    public BookController(BookService bookService, LoanService loanService) {
+    public BookController(BookService bookService,
+                          LoanService loanService,
+                          BookImportService bookImportService,
+                          ExportService exportService,
+                          @Value("${book.http.max-age:0s}") Duration maxAge) {
         this.bookService = bookService;
         this.loanService = loanService;
+        this.bookImportService = bookImportService;
+        this.exportService = exportService;
+        // no-cache lets clients keep the book but makes them revalidate it with If-None-Match every time
+        this.cacheControl = maxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(maxAge).mustRevalidate();
     }
 
     @PostMapping
@@ -29,9 +65,50 @@ public class BookController {
         return ResponseEntity.ok(bookService.save(bookDTO));
     }
 
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ResponseEntity<List<BookImportResultDTO>> importBooks(InputStream content) {
+        return ResponseEntity.ok(bookImportService.importBooks(content));
+    }
+
+    @GetMapping("/export")
+    public void exportBooks(BookDTO bookDTO,
+                            @RequestParam(value = "format", defaultValue = "ndjson") String extension,
+                            HttpServletResponse response) throws IOException {
+        ExportFormat format = ExportFormat.from(extension);
+
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=books." + format.getExtension());
+        exportService.exportBooks(bookDTO, format, response.getOutputStream());
+    }
+
+    @GetMapping("/batch")
+    public ResponseEntity<List<BookLookupResultDTO>> findBooksById(@RequestParam("ids") List<Long> ids) {
+        return ResponseEntity.ok(bookService.findAllById(ids));
+    }
+
+    @PostMapping("/lookup")
+    public ResponseEntity<List<BookLookupResultDTO>> findBooksByIsbn(@RequestBody List<String> isbns) {
+        return ResponseEntity.ok(bookService.findAllByIsbn(isbns));
+    }
+
+    @GetMapping("/availability")
+    public ResponseEntity<BookAvailabilityDTO> findAvailability(@RequestParam("ids") List<Long> ids) {
+        return ResponseEntity.ok(loanService.findAvailability(ids));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<BookDTO> findBookById(@PathVariable("id") Long id) {
-        return ResponseEntity.ok(bookService.getById(id));
+    public ResponseEntity<BookDTO> findBookById(@PathVariable("id") Long id, WebRequest request) {
+        // the ETag checkNotModified writes and the body come from the same read, or they could name different versions
+        BookDTO book = bookService.getById(id);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(String.valueOf(book.getVersion()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(String.valueOf(book.getVersion()))
+                .cacheControl(cacheControl)
+                .body(book);
     }
 
     @DeleteMapping("/{id}")
@@ -42,18 +119,76 @@ public class BookController {
 
     @PutMapping("/{id}")
     public ResponseEntity<BookDTO> update(@PathVariable("id") Long id,
-                                          @RequestBody BookDTO bookDTO) {
-        return ResponseEntity.ok(bookService.update(bookDTO));
+                                          @RequestBody BookDTO bookDTO,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        // the version in If-Match was read for the book of the path, never update another one
+        if (bookDTO.getId() != null && !bookDTO.getId().equals(id)) {
+            throw new BusinessException("Book id does not match the path");
+        }
+        bookDTO.setId(id);
+        bookDTO.setVersion(expectedVersion(ifMatch));
+
+        BookDTO updated = bookService.update(bookDTO);
+        return ResponseEntity.ok()
+                .eTag(String.valueOf(updated.getVersion()))
+                .body(updated);
+    }
+
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        // If-Match uses strong comparison, so a weak or foreign tag can never match
+        Matcher matcher = STRONG_ETAG.matcher(ifMatch.trim());
+        if (!matcher.matches()) {
+            throw new BusinessException(BOOK_CHANGED, 412);
+        }
+        return Long.valueOf(matcher.group(1));
     }
 
     @GetMapping
-    public ResponseEntity<Page<BookDTO>> find(BookDTO bookDTO, Pageable pageRequest) {
+    public ResponseEntity<Slice<BookDTO>> find(BookDTO bookDTO,
+                                               Pageable pageRequest,
+                                               @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        if (!count) {
+            return ResponseEntity.ok(bookService.findSlice(bookDTO, pageRequest));
+        }
         return ResponseEntity.ok(bookService.find(bookDTO, pageRequest));
     }
 
+    // search hits are ranked, not ordered by a key, so they only page by page and size
+    @GetMapping(params = "q")
+    public ResponseEntity<Slice<BookDTO>> search(@RequestParam("q") String query,
+                                                 @RequestParam(value = "cursor", required = false) String cursor,
+                                                 Pageable pageRequest) {
+        if (cursor != null) {
+            throw new BusinessException("Search does not support cursor");
+        }
+        return ResponseEntity.ok(bookService.search(query, pageRequest));
+    }
+
+    @GetMapping(params = {"cursor", "!q"})
+    public ResponseEntity<CursorSliceDTO<BookDTO>> findAfter(BookDTO bookDTO,
+                                                             @RequestParam("cursor") String cursor,
+                                                             @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(bookService.findAfter(bookDTO, KeysetCursor.decode(cursor), size));
+    }
+
     @GetMapping("/{id}/loans")
-    public ResponseEntity<Page<LoanDTO>> findLoansByBook(@PathVariable("id") Long id,
-                                                         Pageable pagaRequest) {
+    public ResponseEntity<Slice<LoanDTO>> findLoansByBook(@PathVariable("id") Long id,
+                                                          Pageable pagaRequest,
+                                                          @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        if (!count) {
+            return ResponseEntity.ok(loanService.findSliceByBook(id, pagaRequest));
+        }
         return ResponseEntity.ok(loanService.findByBook(id, pagaRequest));
     }
+
+    @GetMapping(value = "/{id}/loans", params = "cursor")
+    public ResponseEntity<CursorSliceDTO<LoanDTO>> findLoansByBookAfter(@PathVariable("id") Long id,
+                                                                        @RequestParam("cursor") String cursor,
+                                                                        @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(loanService.findByBookAfter(id, KeysetCursor.decode(cursor), size));
+    }
 }
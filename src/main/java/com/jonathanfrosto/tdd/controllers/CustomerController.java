@@ -0,0 +1,27 @@
+package com.jonathanfrosto.tdd.controllers;
+
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.services.LoanService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("customers")
+public class CustomerController {
+
+    LoanService loanService;
+
+    public CustomerController(LoanService loanService) {
+        this.loanService = loanService;
+    }
+
+    @GetMapping("/{customer}/loans")
+    public ResponseEntity<CursorSliceDTO<LoanDTO>> findLoans(@PathVariable("customer") String customer,
+                                                             @RequestParam(value = "returned", required = false) Boolean returned,
+                                                             @RequestParam(value = "cursor", defaultValue = "") String cursor,
+                                                             @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(loanService.findByCustomerAfter(customer, returned, KeysetCursor.decode(cursor), size));
+    }
+}
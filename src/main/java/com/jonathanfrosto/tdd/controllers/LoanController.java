@@ -1,29 +1,47 @@
 package com.jonathanfrosto.tdd.controllers;
 
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.ExportFormat;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
 import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
 import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanReturnDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanReturnResultDTO;
+import com.jonathanfrosto.tdd.services.ExportService;
 import com.jonathanfrosto.tdd.services.LoanService;
-import org.springframework.data.domain.Page;
+import com.jonathanfrosto.tdd.services.checkout.GroupCommitLoanWriter;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("loans")
 public class LoanController {
 
     LoanService loanService;
+    ExportService exportService;
+    GroupCommitLoanWriter groupCommitLoanWriter;
 
-    public LoanController(LoanService loanService) {
+    public LoanController(LoanService loanService,
+                          ExportService exportService,
+                          ObjectProvider<GroupCommitLoanWriter> groupCommitLoanWriter) {
         this.loanService = loanService;
+        this.exportService = exportService;
+        this.groupCommitLoanWriter = groupCommitLoanWriter.getIfAvailable();
     }
 
     @PostMapping
     public ResponseEntity<LoanDTO> saveLoan(@RequestBody @Valid LoanDTO body) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(loanService.save(body));
+        LoanDTO saved = groupCommitLoanWriter == null ? loanService.save(body) : groupCommitLoanWriter.save(body);
+        return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
     @PatchMapping("/{id}")
@@ -31,8 +49,42 @@ public class LoanController {
         loanService.giveBackBook(id);
     }
 
+    @PatchMapping
+    public ResponseEntity<LoanReturnResultDTO> returnBooks(@RequestBody LoanReturnDTO body) {
+        return ResponseEntity.ok(loanService.giveBackBooks(body));
+    }
+
     @GetMapping
-    public ResponseEntity<Page<LoanDTO>> find(LoanFilterDTO filterDTO, Pageable pageable) {
+    public ResponseEntity<Slice<LoanDTO>> find(LoanFilterDTO filterDTO,
+                                               Pageable pageable,
+                                               @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        if (!count) {
+            return ResponseEntity.ok(loanService.findSlice(filterDTO, pageable));
+        }
         return ResponseEntity.ok(loanService.find(filterDTO, pageable));
     }
+
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorSliceDTO<LoanDTO>> findAfter(LoanFilterDTO filterDTO,
+                                                             @RequestParam("cursor") String cursor,
+                                                             @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(loanService.findAfter(filterDTO, KeysetCursor.decode(cursor), size));
+    }
+
+    @GetMapping("/overdue")
+    public ResponseEntity<CursorSliceDTO<LoanDTO>> findOverdue(@RequestParam(value = "cursor", defaultValue = "") String cursor,
+                                                               @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(loanService.findOverdueAfter(KeysetCursor.decode(cursor), size));
+    }
+
+    @GetMapping("/export")
+    public void export(LoanFilterDTO filterDTO,
+                       @RequestParam(value = "format", defaultValue = "ndjson") String extension,
+                       HttpServletResponse response) throws IOException {
+        ExportFormat format = ExportFormat.from(extension);
+
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=loans." + format.getExtension());
+        exportService.exportLoans(filterDTO, format, response.getOutputStream());
+    }
 }
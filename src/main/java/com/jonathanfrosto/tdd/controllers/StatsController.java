@@ -0,0 +1,35 @@
+package com.jonathanfrosto.tdd.controllers;
+
+import com.jonathanfrosto.tdd.domain.dto.BookLoanStatsDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanStatsDTO;
+import com.jonathanfrosto.tdd.services.LoanStatsService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("stats")
+public class StatsController {
+
+    LoanStatsService loanStatsService;
+
+    public StatsController(LoanStatsService loanStatsService) {
+        this.loanStatsService = loanStatsService;
+    }
+
+    @GetMapping("/books/top")
+    public ResponseEntity<List<BookLoanStatsDTO>> findTopBooks(@RequestParam(value = "size", defaultValue = "10") int size) {
+        return ResponseEntity.ok(loanStatsService.findTopBooks(size));
+    }
+
+    @GetMapping("/loans/daily")
+    public ResponseEntity<LoanStatsDTO> findDaily(@RequestParam(value = "from", required = false)
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  @RequestParam(value = "to", required = false)
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(loanStatsService.findDaily(from, to));
+    }
+}
@@ -0,0 +1,74 @@
+package com.jonathanfrosto.tdd.domain.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cache.spi.support.RegionNameQualifier;
+import org.springframework.boot.convert.DurationStyle;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+public class EntityCacheRegionFactory extends JCacheRegionFactory {
+
+    public static final String NAME = "com.jonathanfrosto.tdd.domain.cache.EntityCacheRegionFactory";
+
+    public static final String ENTITY_MAXIMUM_SIZE = "tdd.cache.entity.maximum-size";
+    public static final String ENTITY_TTL = "tdd.cache.entity.ttl";
+    public static final String QUERY_MAXIMUM_SIZE = "tdd.cache.query.maximum-size";
+    public static final String QUERY_TTL = "tdd.cache.query.ttl";
+
+    private static final List<Class<?>> CACHED_ENTITIES = List.of(Book.class);
+
+    @Override
+    protected CacheManager resolveCacheManager(SessionFactoryOptions options, Map properties) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+
+        // one manager per session factory, test contexts run side by side against different databases
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("tdd:entity-cache:" + UUID.randomUUID()), getClassLoader(provider));
+
+        CaffeineConfiguration<Object, Object> entities = configuration(
+                setting(properties, ENTITY_MAXIMUM_SIZE, "100000"), setting(properties, ENTITY_TTL, "1h"));
+        for (Class<?> entity : CACHED_ENTITIES) {
+            cacheManager.createCache(qualify(entity.getName(), options), entities);
+        }
+
+        cacheManager.createCache(qualify(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, options),
+                configuration(setting(properties, QUERY_MAXIMUM_SIZE, "10000"), setting(properties, QUERY_TTL, "10m")));
+
+        // cached query results are checked against these timestamps, they must never be evicted before them
+        cacheManager.createCache(qualify(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, options),
+                new CaffeineConfiguration<>());
+
+        return cacheManager;
+    }
+
+    private CaffeineConfiguration<Object, Object> configuration(String maximumSize, String ttl) {
+        Duration expiry = DurationStyle.detectAndParse(ttl);
+
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(Long.parseLong(maximumSize)));
+        configuration.setExpireAfterWrite(OptionalLong.of(expiry.toNanos()));
+        return configuration;
+    }
+
+    private String qualify(String regionName, SessionFactoryOptions options) {
+        return RegionNameQualifier.INSTANCE.qualify(regionName, options);
+    }
+
+    private String setting(Map<?, ?> settings, String key, String defaultValue) {
+        Object value = settings.get(key);
+        return value == null ? defaultValue : value.toString().trim();
+    }
+}
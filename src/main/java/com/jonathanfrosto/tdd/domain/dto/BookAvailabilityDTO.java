@@ -0,0 +1,20 @@
+package com.jonathanfrosto.tdd.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookAvailabilityDTO {
+
+    public static final int MAX_IDS = 5000;
+
+    private List<Long> available;
+    private List<Long> loaned;
+}
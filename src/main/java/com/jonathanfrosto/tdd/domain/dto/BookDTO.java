@@ -1,5 +1,6 @@
 package com.jonathanfrosto.tdd.domain.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,4 +23,8 @@ public class BookDTO {
 
     @NotBlank
     private String author;
+
+    // travels in the ETag and If-Match headers instead of the body
+    @JsonIgnore
+    private Long version;
 }
@@ -0,0 +1,23 @@
+package com.jonathanfrosto.tdd.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookImportResultDTO {
+
+    private int row;
+    private String isbn;
+    private Long id;
+    private Status status;
+    private String message;
+
+    public enum Status {
+        CREATED, DUPLICATED, INVALID, MALFORMED
+    }
+}
@@ -0,0 +1,20 @@
+package com.jonathanfrosto.tdd.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookLoanStatsDTO {
+
+    public static final int MAX_SIZE = 100;
+
+    private Long bookId;
+    private String isbn;
+    private String name;
+    private long loans;
+}
@@ -0,0 +1,24 @@
+package com.jonathanfrosto.tdd.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookLookupResultDTO {
+
+    public static final int MAX_KEYS = 1000;
+
+    private Long id;
+    private String isbn;
+    private Status status;
+    private BookDTO book;
+
+    public enum Status {
+        FOUND, NOT_FOUND
+    }
+}
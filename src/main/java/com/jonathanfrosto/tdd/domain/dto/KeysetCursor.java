@@ -0,0 +1,67 @@
+package com.jonathanfrosto.tdd.domain.dto;
+
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDate date;
+    private final Long id;
+
+    public static KeysetCursor first() {
+        return new KeysetCursor(null, null);
+    }
+
+    public static KeysetCursor after(Long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    public static KeysetCursor after(LocalDate date, Long id) {
+        return new KeysetCursor(date, id);
+    }
+
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    // loans are ordered by date first, an id-only cursor comes from the book listings
+    public KeysetCursor requireDate() {
+        if (!isFirst() && date == null) {
+            throw new BusinessException("Invalid cursor");
+        }
+        return this;
+    }
+
+    public String encode() {
+        String raw = date == null ? String.valueOf(id) : date + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return first();
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+
+            if (separator < 0) {
+                return after(Long.valueOf(raw));
+            }
+
+            return after(LocalDate.parse(raw.substring(0, separator)), Long.valueOf(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BusinessException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.jonathanfrosto.tdd.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoanCheckoutResultDTO {
+
+    private String isbn;
+    private LoanDTO loan;
+    private Status status;
+    private String message;
+
+    public enum Status {
+        CREATED(201), BOOK_NOT_FOUND(404), ALREADY_LOANED(409);
+
+        private final int statusCode;
+
+        Status(int statusCode) {
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+}
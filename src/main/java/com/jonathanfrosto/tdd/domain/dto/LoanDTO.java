@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.validation.constraints.NotBlank;
+import java.time.LocalDate;
 
 @Builder
 @Data
@@ -20,4 +21,8 @@ public class LoanDTO {
 
     @NotBlank
     private String customer;
+
+    private LocalDate loanDate;
+
+    private Boolean returned;
 }
@@ -0,0 +1,20 @@
+package com.jonathanfrosto.tdd.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoanReturnResultDTO {
+
+    private List<Long> returned;
+    private List<Long> notFound;
+    private List<Long> alreadyReturned;
+    private List<String> notLoaned;
+}
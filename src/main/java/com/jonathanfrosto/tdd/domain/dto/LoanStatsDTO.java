@@ -0,0 +1,20 @@
+package com.jonathanfrosto.tdd.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoanStatsDTO {
+
+    public static final int MAX_DAYS = 366;
+
+    private long active;
+    private List<DailyLoanStatsDTO> days;
+}
@@ -1,6 +1,12 @@
 package com.jonathanfrosto.tdd.domain.entities;
 
+import com.jonathanfrosto.tdd.domain.ids.EntityIdGenerator;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 
@@ -9,10 +15,15 @@ import javax.persistence.*;
 @AllArgsConstructor
 @Builder
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = @Index(name = "ux_book_isbn", columnList = "isbn", unique = true))
 public class Book {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "book_id")
+    @GenericGenerator(name = "book_id", strategy = EntityIdGenerator.NAME,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "book_seq"))
     private Long id;
 
     @Column
@@ -23,4 +34,7 @@ public class Book {
 
     @Column
     private String author;
+
+    @Version
+    private Long version;
 }
@@ -0,0 +1,24 @@
+package com.jonathanfrosto.tdd.domain.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+@Entity
+@Table(indexes = @Index(name = "ix_book_loan_stats_loans", columnList = "loans desc, id_book"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLoanStats {
+
+    @Id
+    @Column(name = "id_book")
+    private Long bookId;
+
+    @Column
+    private long loans;
+}
@@ -1,14 +1,25 @@
 package com.jonathanfrosto.tdd.domain.entities;
 
+import com.jonathanfrosto.tdd.domain.ids.EntityIdGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "ix_loan_book_returned", columnList = "id_book, returned"),
+        @Index(name = "ix_loan_book_date", columnList = "id_book, loanDate, id"),
+        @Index(name = "ix_loan_customer_date", columnList = "customer, loanDate, id"),
+        @Index(name = "ix_loan_customer_returned_date", columnList = "customer, returned, loanDate, id"),
+        @Index(name = "ix_loan_open_date", columnList = "returned, loanDate, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -16,14 +27,16 @@ import java.time.LocalDate;
 public class Loan {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "loan_id")
+    @GenericGenerator(name = "loan_id", strategy = EntityIdGenerator.NAME,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "loan_seq"))
     private Long id;
 
     @Column
     private String customer;
 
-    @ManyToOne
-    @JoinColumn(name = "id_book")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_book", foreignKey = @ForeignKey(name = "fk_loan_book"))
     private Book book;
 
     @Column
@@ -0,0 +1,25 @@
+package com.jonathanfrosto.tdd.domain.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDate;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanCheckpoint {
+
+    @Id
+    private String name;
+
+    @Column
+    private LocalDate scannedUntil;
+}
@@ -0,0 +1,60 @@
+package com.jonathanfrosto.tdd.domain.ids;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+
+public class EntityIdGenerator extends SequenceStyleGenerator {
+
+    public static final String NAME = "com.jonathanfrosto.tdd.domain.ids.EntityIdGenerator";
+
+    public static final String STRATEGY = "tdd.id.strategy";
+    public static final String OPTIMIZER = "tdd.id.optimizer";
+    public static final String NODE_ID = "tdd.id.node-id";
+
+    public static final String SEQUENCE_STRATEGY = "sequence";
+    public static final String TIME_ORDERED_STRATEGY = "time-ordered";
+
+    // has to match the increment of book_seq and loan_seq, changing it takes a migration that alters both sequences
+    private static final int ALLOCATION_SIZE = 50;
+
+    private TimeOrderedIdGenerator timeOrderedIdGenerator;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+
+        params.setProperty(INCREMENT_PARAM, String.valueOf(ALLOCATION_SIZE));
+        params.setProperty(OPT_PARAM, setting(settings, OPTIMIZER, "pooled-lo"));
+
+        super.configure(type, params, serviceRegistry);
+
+        String strategy = setting(settings, STRATEGY, SEQUENCE_STRATEGY);
+        if (TIME_ORDERED_STRATEGY.equals(strategy)) {
+            timeOrderedIdGenerator = new TimeOrderedIdGenerator(Long.parseLong(setting(settings, NODE_ID, "0")));
+        } else if (!SEQUENCE_STRATEGY.equals(strategy)) {
+            throw new MappingException("Unknown id strategy: " + strategy);
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        if (timeOrderedIdGenerator != null) {
+            return timeOrderedIdGenerator.next();
+        }
+
+        return super.generate(session, object);
+    }
+
+    private String setting(Map<?, ?> settings, String key, String defaultValue) {
+        Object value = settings.get(key);
+        return value == null ? defaultValue : value.toString().trim();
+    }
+}
@@ -0,0 +1,51 @@
+package com.jonathanfrosto.tdd.domain.ids;
+
+import java.time.Clock;
+import java.time.Instant;
+
+public class TimeOrderedIdGenerator {
+
+    static final long EPOCH = Instant.parse("2021-01-01T00:00:00Z").toEpochMilli();
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private final Clock clock;
+
+    private long lastTimestamp = -1L;
+    private long sequence;
+
+    public TimeOrderedIdGenerator(long nodeId) {
+        this(nodeId, Clock.systemUTC());
+    }
+
+    TimeOrderedIdGenerator(long nodeId, Clock clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    public synchronized long next() {
+        long timestamp = Math.max(clock.millis() - EPOCH, lastTimestamp);
+
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                // sequence exhausted for this millisecond, borrow the next one
+                timestamp++;
+            }
+        } else {
+            sequence = 0;
+        }
+
+        lastTimestamp = timestamp;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+}
@@ -0,0 +1,39 @@
+package com.jonathanfrosto.tdd.domain.mappers;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class BookMapper {
+
+    public BookDTO toDto(Book entity) {
+        return BookDTO.builder()
+                .id(entity.getId())
+                .name(entity.getName())
+                .isbn(entity.getIsbn())
+                .author(entity.getAuthor())
+                .version(entity.getVersion())
+                .build();
+    }
+
+    public List<BookDTO> toDtos(List<Book> entities) {
+        List<BookDTO> dtos = new ArrayList<>(entities.size());
+        for (Book entity : entities) {
+            dtos.add(toDto(entity));
+        }
+        return dtos;
+    }
+
+    public Book toEntity(BookDTO dto) {
+        return Book.builder()
+                .id(dto.getId())
+                .name(dto.getName())
+                .isbn(dto.getIsbn())
+                .author(dto.getAuthor())
+                .build();
+    }
+}
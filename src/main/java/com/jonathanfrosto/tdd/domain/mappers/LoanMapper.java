@@ -0,0 +1,45 @@
+package com.jonathanfrosto.tdd.domain.mappers;
+
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.entities.Loan;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class LoanMapper {
+
+    public LoanDTO toDto(Loan entity) {
+        Book book = entity.getBook();
+
+        return LoanDTO.builder()
+                .id(entity.getId())
+                .isbn(book == null ? null : book.getIsbn())
+                .customer(entity.getCustomer())
+                .loanDate(entity.getLoanDate())
+                .returned(entity.isReturned())
+                .build();
+    }
+
+    public List<LoanDTO> toDtos(List<Loan> entities) {
+        List<LoanDTO> dtos = new ArrayList<>(entities.size());
+        for (Loan entity : entities) {
+            dtos.add(toDto(entity));
+        }
+        return dtos;
+    }
+
+    public Loan toExample(LoanFilterDTO filter) {
+        Loan example = new Loan();
+        example.setCustomer(filter.getCustomer());
+
+        if (filter.getIsbn() != null) {
+            example.setBook(Book.builder().isbn(filter.getIsbn()).build());
+        }
+
+        return example;
+    }
+}
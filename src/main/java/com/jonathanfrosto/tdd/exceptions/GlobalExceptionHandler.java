@@ -1,7 +1,11 @@
 package com.jonathanfrosto.tdd.exceptions;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -13,10 +17,22 @@ import java.util.stream.Collectors;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public GlobalExceptionHandler(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public Map<String, List<ApiError>> beanValidation(MethodArgumentNotValidException e) {
-        List<ApiError> apiErrors = e.getBindingResult().getFieldErrors()
+        return fieldErrors(e, e.getBindingResult());
+    }
+
+    protected Map<String, List<ApiError>> fieldErrors(Exception e, BindingResult bindingResult) {
+        countError(e, HttpStatus.BAD_REQUEST.value());
+
+        List<ApiError> apiErrors = bindingResult.getFieldErrors()
                 .stream().map(erro -> new ApiError(erro.getField(), erro.getDefaultMessage()))
                 .collect(Collectors.toList());
 
@@ -27,12 +43,32 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(BusinessException.class)
     public ResponseEntity<Map<String, List<ApiError>>> businessValidation(BusinessException e) {
-        List<ApiError> apiErrors = Collections.singletonList(new ApiError(e.getMessage()));
+        countError(e, e.getStatusCode());
+        return error(e.getMessage(), e.getStatusCode());
+    }
+
+    // counted as itself, a saturated offload executor is what api.errors has to show
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Map<String, List<ApiError>>> rejected(TaskRejectedException e) {
+        countError(e, HttpStatus.SERVICE_UNAVAILABLE.value());
+        return error("Server busy, try again later", HttpStatus.SERVICE_UNAVAILABLE.value());
+    }
+
+    private ResponseEntity<Map<String, List<ApiError>>> error(String message, int status) {
+        List<ApiError> apiErrors = Collections.singletonList(new ApiError(message));
 
         Map<String, List<ApiError>> errors = new HashMap<>();
         errors.put("errors", apiErrors);
 
-        return new ResponseEntity<>(errors, HttpStatus.valueOf(e.getStatusCode()));
+        return new ResponseEntity<>(errors, HttpStatus.valueOf(status));
     }
 
+    private void countError(Exception e, int status) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            registry.counter("api.errors",
+                    "exception", e.getClass().getSimpleName(),
+                    "status", String.valueOf(status)).increment();
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package com.jonathanfrosto.tdd.metrics;
+
+import com.jonathanfrosto.tdd.services.cache.BookIsbnCache;
+import com.jonathanfrosto.tdd.services.cache.CountCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+// publishes hits, misses, evictions and size of the in-memory caches as cache.* tagged by cache name. Not a
+// MeterBinder bean: the registry would create those, and the repositories behind them, while it is being built
+@Component
+public class CacheMetrics {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final BookIsbnCache bookIsbnCache;
+    private final CountCache countCache;
+
+    public CacheMetrics(ObjectProvider<MeterRegistry> meterRegistry, BookIsbnCache bookIsbnCache, CountCache countCache) {
+        this.meterRegistry = meterRegistry;
+        this.bookIsbnCache = bookIsbnCache;
+        this.countCache = countCache;
+    }
+
+    @PostConstruct
+    public void bind() {
+        meterRegistry.ifAvailable(registry -> {
+            bookIsbnCache.bindTo(registry);
+            countCache.bindTo(registry);
+        });
+    }
+}
@@ -0,0 +1,35 @@
+package com.jonathanfrosto.tdd.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Component
+public class DataSourceMetricsPostProcessor implements BeanPostProcessor {
+
+    private final QueryMetricsListener listener;
+
+    public DataSourceMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry,
+                                          @Value("${metrics.slow-query.threshold:200ms}") Duration slowQueryThreshold) {
+        this.listener = new QueryMetricsListener(meterRegistry, slowQueryThreshold);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource) || bean instanceof ProxyDataSource) {
+            return bean;
+        }
+
+        return ProxyDataSourceBuilder.create((DataSource) bean)
+                .name(beanName)
+                .listener(listener)
+                .build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.jonathanfrosto.tdd.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import net.ttddyy.dsproxy.listener.logging.DefaultQueryLogEntryCreator;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+@Slf4j
+class QueryMetricsListener implements QueryExecutionListener {
+
+    private static final QueryType[] QUERY_TYPES = QueryType.values();
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Duration slowQueryThreshold;
+    private final DefaultQueryLogEntryCreator logEntryCreator = new DefaultQueryLogEntryCreator();
+    // one timer per type, batch and success, registered on first use so a statement only records
+    private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(QUERY_TYPES.length * 4);
+    private volatile MeterRegistry registry;
+
+    QueryMetricsListener(ObjectProvider<MeterRegistry> meterRegistry, Duration slowQueryThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        StatementCounter.increment();
+
+        Timer timer = timer(queryType(queryInfoList), execInfo.isBatch(), execInfo.isSuccess());
+        if (timer != null) {
+            timer.record(execInfo.getElapsedTime(), TimeUnit.MILLISECONDS);
+        }
+
+        if (execInfo.getElapsedTime() >= slowQueryThreshold.toMillis()) {
+            // bind parameters carry customer names and isbns, so they are only logged at debug
+            log.warn("Slow query took {} ms: {}", execInfo.getElapsedTime(), queryInfoList.stream()
+                    .map(QueryInfo::getQuery)
+                    .collect(Collectors.joining("; ")));
+            if (log.isDebugEnabled()) {
+                log.debug("Slow query: {}", logEntryCreator.getLogEntry(execInfo, queryInfoList, false, false));
+            }
+        }
+    }
+
+    private Timer timer(QueryType type, boolean batch, boolean success) {
+        int slot = type.ordinal() * 4 + (batch ? 2 : 0) + (success ? 1 : 0);
+        Timer timer = timers.get(slot);
+        if (timer != null) {
+            return timer;
+        }
+
+        MeterRegistry registry = registry();
+        if (registry == null) {
+            return null;
+        }
+
+        // registering twice returns the same timer, so a race only costs a lookup
+        timer = Timer.builder("db.statements")
+                .tag("type", type.name().toLowerCase())
+                .tag("batch", String.valueOf(batch))
+                .tag("success", String.valueOf(success))
+                .publishPercentileHistogram()
+                .register(registry);
+        timers.set(slot, timer);
+        return timer;
+    }
+
+    private MeterRegistry registry() {
+        if (registry == null) {
+            registry = meterRegistry.getIfAvailable();
+        }
+        return registry;
+    }
+
+    private QueryType queryType(List<QueryInfo> queryInfoList) {
+        if (queryInfoList.isEmpty()) {
+            return QueryType.OTHER;
+        }
+        return QueryUtils.getQueryType(queryInfoList.get(0).getQuery());
+    }
+}
@@ -0,0 +1,52 @@
+package com.jonathanfrosto.tdd.metrics;
+
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public ServiceMetricsAspect(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("within(@org.springframework.stereotype.Service *)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return joinPoint.proceed();
+        }
+
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+        String status = "none";
+
+        try {
+            return joinPoint.proceed();
+        } catch (BusinessException e) {
+            exception = e.getClass().getSimpleName();
+            status = String.valueOf(e.getStatusCode());
+            throw e;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("service.invocations")
+                    .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .tag("status", status)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.jonathanfrosto.tdd.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@Slf4j
+@Component
+public class StatementCountFilter extends OncePerRequestFilter {
+
+    private static final String SCOPE_ATTRIBUTE = StatementCountFilter.class.getName() + ".scope";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public StatementCountFilter(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        StatementCounter.Scope previous = StatementCounter.current();
+        StatementCounter.Scope scope = (StatementCounter.Scope) request.getAttribute(SCOPE_ATTRIBUTE);
+
+        if (scope == null) {
+            scope = StatementCounter.open();
+            request.setAttribute(SCOPE_ATTRIBUTE, scope);
+        } else {
+            StatementCounter.swap(scope);
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            StatementCounter.swap(previous);
+
+            // an async request is recorded when its final dispatch completes
+            if (!isAsyncStarted(request)) {
+                record(request, scope.count());
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    private void record(HttpServletRequest request, long statements) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+        log.debug("{} {} issued {} statements", request.getMethod(), uri, statements);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            DistributionSummary.builder("http.server.requests.statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(statements);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.jonathanfrosto.tdd.metrics;
+
+// counts the JDBC statements issued by the current thread while a scope is open; scopes nest
+public final class StatementCounter {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private StatementCounter() {
+    }
+
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    public static Scope current() {
+        return CURRENT.get();
+    }
+
+    // makes the given scope current and returns the one it replaced, so work can follow a request across threads
+    public static Scope swap(Scope scope) {
+        Scope previous = CURRENT.get();
+        if (scope == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(scope);
+        }
+        return previous;
+    }
+
+    public static Runnable propagate(Runnable task) {
+        Scope scope = CURRENT.get();
+        return () -> {
+            Scope previous = swap(scope);
+            try {
+                task.run();
+            } finally {
+                swap(previous);
+            }
+        };
+    }
+
+    static void increment() {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.count++;
+        }
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+        private volatile long count;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+            swap(parent);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.jonathanfrosto.tdd.repositories;
+
+import com.jonathanfrosto.tdd.domain.dto.BookLoanStatsDTO;
+import com.jonathanfrosto.tdd.domain.entities.BookLoanStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface BookLoanStatsRepository extends JpaRepository<BookLoanStats, Long> {
+
+    @Modifying
+    @Query("update BookLoanStats s set s.loans = s.loans + :loans where s.bookId = :bookId")
+    int increment(@Param("bookId") Long bookId, @Param("loans") long loans);
+
+    @Query("select new com.jonathanfrosto.tdd.domain.dto.BookLoanStatsDTO(s.bookId, b.isbn, b.name, s.loans) " +
+            "from BookLoanStats s, Book b where b.id = s.bookId order by s.loans desc, s.bookId")
+    List<BookLoanStatsDTO> findTop(Pageable pageable);
+}
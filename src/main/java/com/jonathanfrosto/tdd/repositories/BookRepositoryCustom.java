@@ -0,0 +1,20 @@
+package com.jonathanfrosto.tdd.repositories;
+
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface BookRepositoryCustom {
+
+    Slice<Book> findSliceByExample(Example<Book> example, Pageable pageable);
+
+    List<Book> findByExampleAfter(Example<Book> example, KeysetCursor cursor, int limit);
+
+    // forward-only cursor, every book is detached once read so the persistence context stays empty
+    Stream<Book> streamByExample(Example<Book> example, int fetchSize);
+}
@@ -0,0 +1,102 @@
+package com.jonathanfrosto.tdd.repositories;
+
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<Book> findSliceByExample(Example<Book> example, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        Predicate byExample = QueryByExamplePredicateBuilder.getPredicate(root, cb, example);
+        if (byExample != null) {
+            query.where(byExample);
+        }
+
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        return SliceQueries.slice(entityManager.createQuery(query), pageable);
+    }
+
+    @Override
+    public List<Book> findByExampleAfter(Example<Book> example, KeysetCursor cursor, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+
+        Predicate byExample = QueryByExamplePredicateBuilder.getPredicate(root, cb, example);
+        if (byExample != null) {
+            predicates.add(byExample);
+        }
+
+        if (!cursor.isFirst()) {
+            predicates.add(cb.greaterThan(root.get("id"), cursor.getId()));
+        }
+
+        query.where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<Book> streamByExample(Example<Book> example, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        Predicate byExample = QueryByExamplePredicateBuilder.getPredicate(root, cb, example);
+        if (byExample != null) {
+            query.where(byExample);
+        }
+
+        query.orderBy(cb.asc(root.get("id")));
+
+        // a full scan would push the hot books out of the second-level cache. Rows are read as the stream is consumed,
+        // after a query hint would have been reset, so the cache mode is set on the session until the stream closes
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode cacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+
+        try {
+            return entityManager.createQuery(query)
+                    .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                    .setHint(QueryHints.HINT_READONLY, true)
+                    .getResultStream()
+                    .peek(entityManager::detach)
+                    .onClose(() -> session.setCacheMode(cacheMode));
+        } catch (RuntimeException e) {
+            // no stream to close, the rest of the transaction must not keep bypassing the cache
+            session.setCacheMode(cacheMode);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.jonathanfrosto.tdd.repositories;
+
+import com.jonathanfrosto.tdd.domain.dto.DailyLoanStatsDTO;
+import com.jonathanfrosto.tdd.domain.entities.DailyLoanStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailyLoanStatsRepository extends JpaRepository<DailyLoanStats, LocalDate> {
+
+    @Modifying
+    @Query("update DailyLoanStats s set s.checkouts = s.checkouts + :checkouts, s.returns = s.returns + :returns " +
+            "where s.statsDate = :date")
+    int increment(@Param("date") LocalDate date, @Param("checkouts") long checkouts, @Param("returns") long returns);
+
+    @Query("select new com.jonathanfrosto.tdd.domain.dto.DailyLoanStatsDTO(s.statsDate, s.checkouts, s.returns) " +
+            "from DailyLoanStats s where s.statsDate between :from and :to order by s.statsDate")
+    List<DailyLoanStatsDTO> findBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -5,10 +5,47 @@ import com.jonathanfrosto.tdd.domain.entities.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+
+public interface LoanRepository extends JpaRepository<Loan, Long>, LoanRepositoryCustom {
 
     boolean existsByBookAndReturnedFalse(Book book);
 
     Page<Loan> findByBookId(Long id, Pageable pageable);
+
+    long countByBookId(Long id);
+
+    @Query("select l.id as id, b.id as bookId, b.isbn as isbn, l.returned as returned " +
+            "from Loan l left join l.book b where l.id in :ids")
+    List<LoanStatus> findStatusByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select l.id as id, b.id as bookId, b.isbn as isbn, l.returned as returned " +
+            "from Loan l join l.book b where b.isbn in :isbns and l.returned = false")
+    List<LoanStatus> findOpenByIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l.id as id, l.book.id as bookId, l.returned as returned " +
+            "from Loan l where l.id in :ids and l.returned = false")
+    List<LoanStatus> lockOpenByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Loan l set l.returned = true where l.id in :ids and l.returned = false")
+    int markReturned(@Param("ids") Collection<Long> ids);
+
+    interface LoanStatus {
+        Long getId();
+
+        Long getBookId();
+
+        String getIsbn();
+
+        boolean isReturned();
+    }
 }
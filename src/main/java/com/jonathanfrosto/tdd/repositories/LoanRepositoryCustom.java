@@ -0,0 +1,35 @@
+package com.jonathanfrosto.tdd.repositories;
+
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.entities.Loan;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+// read paths project straight into LoanDTO with the book joined in the same select
+public interface LoanRepositoryCustom {
+
+    Slice<LoanDTO> findSliceByExample(Example<Loan> example, Pageable pageable);
+
+    Slice<LoanDTO> findSliceByBookId(Long bookId, Pageable pageable);
+
+    List<LoanDTO> findByExampleAfter(Example<Loan> example, KeysetCursor cursor, int limit);
+
+    List<LoanDTO> findByBookIdAfter(Long bookId, KeysetCursor cursor, int limit);
+
+    // every loan of the customer when returned is null, otherwise only the open or the returned ones
+    List<LoanDTO> findByCustomerAfter(String customer, Boolean returned, KeysetCursor cursor, int limit);
+
+    // open loans with from <= loanDate < to, from may be null
+    List<LoanDTO> findOpenBetween(LocalDate from, LocalDate to, KeysetCursor cursor, int limit);
+
+    Stream<LoanDTO> streamByExample(Example<Loan> example, int fetchSize);
+
+    // ids of the books with an open loan, read off the loan rows without joining book
+    Stream<Long> streamOpenBookIds(int fetchSize);
+}
@@ -0,0 +1,157 @@
+package com.jonathanfrosto.tdd.repositories;
+
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.entities.Loan;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class LoanRepositoryCustomImpl implements LoanRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<LoanDTO> findSliceByExample(Example<Loan> example, Pageable pageable) {
+        return findSlice(pageable, (root, cb) -> QueryByExamplePredicateBuilder.getPredicate(root, cb, example));
+    }
+
+    @Override
+    public Slice<LoanDTO> findSliceByBookId(Long bookId, Pageable pageable) {
+        return findSlice(pageable, (root, cb) -> cb.equal(root.get("book").get("id"), bookId));
+    }
+
+    @Override
+    public List<LoanDTO> findByExampleAfter(Example<Loan> example, KeysetCursor cursor, int limit) {
+        return findAfter(cursor, limit, (root, cb) -> QueryByExamplePredicateBuilder.getPredicate(root, cb, example));
+    }
+
+    @Override
+    public List<LoanDTO> findByBookIdAfter(Long bookId, KeysetCursor cursor, int limit) {
+        return findAfter(cursor, limit, (root, cb) -> cb.equal(root.get("book").get("id"), bookId));
+    }
+
+    @Override
+    public List<LoanDTO> findByCustomerAfter(String customer, Boolean returned, KeysetCursor cursor, int limit) {
+        return findAfter(cursor, limit, (root, cb) -> {
+            Predicate byCustomer = cb.equal(root.get("customer"), customer);
+            return returned == null ? byCustomer : cb.and(byCustomer, cb.equal(root.get("returned"), returned));
+        });
+    }
+
+    @Override
+    public List<LoanDTO> findOpenBetween(LocalDate from, LocalDate to, KeysetCursor cursor, int limit) {
+        return findAfter(cursor, limit, (root, cb) -> {
+            Path<LocalDate> loanDate = root.get("loanDate");
+            Predicate open = cb.and(cb.isFalse(root.get("returned")), cb.lessThan(loanDate, to));
+
+            return from == null ? open : cb.and(open, cb.greaterThanOrEqualTo(loanDate, from));
+        });
+    }
+
+    @Override
+    public Stream<LoanDTO> streamByExample(Example<Loan> example, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<LoanDTO> query = cb.createQuery(LoanDTO.class);
+        Root<Loan> root = query.from(Loan.class);
+
+        Predicate byExample = QueryByExamplePredicateBuilder.getPredicate(root, cb, example);
+        if (byExample != null) {
+            query.where(byExample);
+        }
+
+        query.select(toDto(root, cb))
+                .orderBy(cb.asc(root.get("loanDate")), cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    @Override
+    public Stream<Long> streamOpenBookIds(int fetchSize) {
+        return entityManager.createQuery("select l.book.id from Loan l where l.returned = false", Long.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    private Slice<LoanDTO> findSlice(Pageable pageable, Filter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<LoanDTO> query = cb.createQuery(LoanDTO.class);
+        Root<Loan> root = query.from(Loan.class);
+
+        Predicate filtered = filter.toPredicate(root, cb);
+        if (filtered != null) {
+            query.where(filtered);
+        }
+
+        query.select(toDto(root, cb))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        return SliceQueries.slice(entityManager.createQuery(query), pageable);
+    }
+
+    private List<LoanDTO> findAfter(KeysetCursor cursor, int limit, Filter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<LoanDTO> query = cb.createQuery(LoanDTO.class);
+        Root<Loan> root = query.from(Loan.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+
+        Predicate filtered = filter.toPredicate(root, cb);
+        if (filtered != null) {
+            predicates.add(filtered);
+        }
+
+        if (!cursor.isFirst()) {
+            Path<LocalDate> loanDate = root.get("loanDate");
+            Path<Long> id = root.get("id");
+
+            predicates.add(cb.or(
+                    cb.greaterThan(loanDate, cursor.getDate()),
+                    cb.and(cb.equal(loanDate, cursor.getDate()), cb.greaterThan(id, cursor.getId()))));
+        }
+
+        query.select(toDto(root, cb))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(root.get("loanDate")), cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // must run after the filter, so an isbn example reuses the join it already created
+    @SuppressWarnings("unchecked")
+    private CompoundSelection<LoanDTO> toDto(Root<Loan> root, CriteriaBuilder cb) {
+        Join<Loan, Book> book = root.getJoins().stream()
+                .filter(join -> join.getAttribute().getName().equals("book"))
+                .map(join -> (Join<Loan, Book>) join)
+                .findFirst()
+                .orElseGet(() -> root.join("book", JoinType.LEFT));
+
+        return cb.construct(LoanDTO.class,
+                root.get("id"),
+                book.get("isbn"),
+                root.get("customer"),
+                root.get("loanDate"),
+                root.get("returned"));
+    }
+
+    private interface Filter {
+        Predicate toPredicate(Root<Loan> root, CriteriaBuilder cb);
+    }
+}
@@ -0,0 +1,7 @@
+package com.jonathanfrosto.tdd.repositories;
+
+import com.jonathanfrosto.tdd.domain.entities.ScanCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ScanCheckpointRepository extends JpaRepository<ScanCheckpoint, String> {
+}
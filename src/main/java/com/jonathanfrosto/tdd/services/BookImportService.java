@@ -0,0 +1,11 @@
+package com.jonathanfrosto.tdd.services;
+
+import com.jonathanfrosto.tdd.domain.dto.BookImportResultDTO;
+
+import java.io.InputStream;
+import java.util.List;
+
+public interface BookImportService {
+
+    List<BookImportResultDTO> importBooks(InputStream content);
+}
@@ -1,20 +1,39 @@
 package com.jonathanfrosto.tdd.services;
 
 import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookImportResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookLookupResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
 
 public interface BookService {
 
     BookDTO save(BookDTO bookDTO);
 
+    List<BookImportResultDTO> saveAll(List<BookDTO> bookDTOS);
+
     BookDTO getById(Long id);
 
+    List<BookLookupResultDTO> findAllById(List<Long> ids);
+
+    List<BookLookupResultDTO> findAllByIsbn(List<String> isbns);
+
     void delete(Long id);
 
     BookDTO update(BookDTO toUpdate);
 
     Page<BookDTO> find(BookDTO bookDTO, Pageable pageable);
 
+    Slice<BookDTO> findSlice(BookDTO bookDTO, Pageable pageable);
+
+    CursorSliceDTO<BookDTO> findAfter(BookDTO bookDTO, KeysetCursor cursor, int size);
+
+    Slice<BookDTO> search(String query, Pageable pageable);
+
     BookDTO findByIsbn(String isbn);
 }
@@ -0,0 +1,15 @@
+package com.jonathanfrosto.tdd.services;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.ExportFormat;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+
+    void exportBooks(BookDTO filter, ExportFormat format, OutputStream out) throws IOException;
+
+    void exportLoans(LoanFilterDTO filter, ExportFormat format, OutputStream out) throws IOException;
+}
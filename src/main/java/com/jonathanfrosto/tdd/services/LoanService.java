@@ -1,17 +1,45 @@
 package com.jonathanfrosto.tdd.services;
 
+import com.jonathanfrosto.tdd.domain.dto.BookAvailabilityDTO;
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.dto.LoanCheckoutResultDTO;
 import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
 import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanReturnDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanReturnResultDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface LoanService {
 
     LoanDTO save(LoanDTO loan);
 
+    List<LoanCheckoutResultDTO> saveAll(List<LoanDTO> loans);
+
     void giveBackBook(Long id);
 
+    LoanReturnResultDTO giveBackBooks(LoanReturnDTO request);
+
+    BookAvailabilityDTO findAvailability(Collection<Long> bookIds);
+
     Page<LoanDTO> find(LoanFilterDTO loanFilterDTO, Pageable pageable);
 
     Page<LoanDTO> findByBook(Long id, Pageable pagaRequest);
+
+    Slice<LoanDTO> findSlice(LoanFilterDTO loanFilterDTO, Pageable pageable);
+
+    Slice<LoanDTO> findSliceByBook(Long id, Pageable pageable);
+
+    CursorSliceDTO<LoanDTO> findAfter(LoanFilterDTO loanFilterDTO, KeysetCursor cursor, int size);
+
+    CursorSliceDTO<LoanDTO> findByBookAfter(Long id, KeysetCursor cursor, int size);
+
+    CursorSliceDTO<LoanDTO> findByCustomerAfter(String customer, Boolean returned, KeysetCursor cursor, int size);
+
+    CursorSliceDTO<LoanDTO> findOverdueAfter(KeysetCursor cursor, int size);
 }
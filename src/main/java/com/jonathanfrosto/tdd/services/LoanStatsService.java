@@ -0,0 +1,16 @@
+package com.jonathanfrosto.tdd.services;
+
+import com.jonathanfrosto.tdd.domain.dto.BookLoanStatsDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanStatsDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface LoanStatsService {
+
+    List<BookLoanStatsDTO> findTopBooks(int size);
+
+    LoanStatsDTO findDaily(LocalDate from, LocalDate to);
+
+    void flush();
+}
@@ -0,0 +1,181 @@
+package com.jonathanfrosto.tdd.services.availability;
+
+import com.jonathanfrosto.tdd.domain.dto.BookAvailabilityDTO;
+import com.jonathanfrosto.tdd.repositories.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// in-process bitmap of the books with an open loan. Checkouts and returns made here update it once they commit and a
+// periodic rebuild from the loan table repairs anything it missed, such as loans written by another instance
+@Slf4j
+@Component
+public class BookAvailabilityIndex {
+
+    private final LoanRepository loanRepository;
+    private final int fetchSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Roaring64NavigableMap loaned = new Roaring64NavigableMap();
+    // changes committed while a rebuild reads the loan table, replayed on the new bitmap before it is swapped in
+    private Map<Long, Boolean> pending;
+
+    public BookAvailabilityIndex(LoanRepository loanRepository,
+                                 @Value("${export.fetch-size:1000}") int fetchSize) {
+        this.loanRepository = loanRepository;
+        this.fetchSize = fetchSize;
+    }
+
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Roaring64NavigableMap rebuilt = new Roaring64NavigableMap();
+        boolean read = false;
+        long changed = 0;
+        long size = 0;
+        try (Stream<Long> bookIds = loanRepository.streamOpenBookIds(fetchSize)) {
+            bookIds.forEach(rebuilt::addLong);
+            rebuilt.runOptimize();
+            read = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (read) {
+                    pending.forEach((bookId, isLoaned) -> set(rebuilt, bookId, isLoaned));
+                    changed = difference(loaned, rebuilt);
+                    loaned = rebuilt;
+                    size = loaned.getLongCardinality();
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Book availability index rebuilt with {} loaned books, {} changed", size, changed);
+    }
+
+    // applied once the surrounding transaction commits, so a rollback never reaches the index
+    public void markLoaned(Collection<Long> bookIds) {
+        List<Long> ids = nonNull(bookIds);
+        afterCommit(() -> apply(ids, true));
+    }
+
+    public void markLoaned(Long bookId) {
+        markLoaned(Collections.singletonList(bookId));
+    }
+
+    public void markReturned(Collection<Long> bookIds) {
+        List<Long> ids = nonNull(bookIds);
+        afterCommit(() -> apply(ids, false));
+    }
+
+    public void markReturned(Long bookId) {
+        markReturned(Collections.singletonList(bookId));
+    }
+
+    public boolean isLoaned(long bookId) {
+        lock.readLock().lock();
+        try {
+            return loaned.contains(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // a book is available when it has no open loan, ids of books that do not exist are reported as available
+    public BookAvailabilityDTO availability(Collection<Long> bookIds) {
+        List<Long> ids = nonNull(new LinkedHashSet<>(bookIds));
+        List<Long> available = new ArrayList<>(ids.size());
+        List<Long> loanedIds = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                (loaned.contains(id) ? loanedIds : available).add(id);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return BookAvailabilityDTO.builder()
+                .available(available)
+                .loaned(loanedIds)
+                .build();
+    }
+
+    // the bitmap caches its cardinality, so reading it is not a pure read
+    public long size() {
+        lock.writeLock().lock();
+        try {
+            return loaned.getLongCardinality();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(List<Long> bookIds, boolean isLoaned) {
+        lock.writeLock().lock();
+        try {
+            for (Long bookId : bookIds) {
+                if (pending != null) {
+                    pending.put(bookId, isLoaned);
+                }
+                set(loaned, bookId, isLoaned);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void set(Roaring64NavigableMap bitmap, long bookId, boolean isLoaned) {
+        if (isLoaned) {
+            bitmap.addLong(bookId);
+        } else {
+            bitmap.removeLong(bookId);
+        }
+    }
+
+    private static long difference(Roaring64NavigableMap previous, Roaring64NavigableMap current) {
+        Roaring64NavigableMap difference = new Roaring64NavigableMap();
+        difference.or(previous);
+        difference.xor(current);
+        return difference.getLongCardinality();
+    }
+
+    private static List<Long> nonNull(Collection<Long> bookIds) {
+        return bookIds.stream().filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
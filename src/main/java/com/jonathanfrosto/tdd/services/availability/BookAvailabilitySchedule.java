@@ -0,0 +1,23 @@
+package com.jonathanfrosto.tdd.services.availability;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(value = "book.availability.reconcile.enabled", havingValue = "true", matchIfMissing = true)
+public class BookAvailabilitySchedule {
+
+    private final BookAvailabilityIndex bookAvailabilityIndex;
+
+    public BookAvailabilitySchedule(BookAvailabilityIndex bookAvailabilityIndex) {
+        this.bookAvailabilityIndex = bookAvailabilityIndex;
+    }
+
+    @Scheduled(cron = "${book.availability.reconcile.cron:0 */5 * * * *}")
+    public void reconcile() {
+        bookAvailabilityIndex.rebuild();
+    }
+}
@@ -0,0 +1,136 @@
+package com.jonathanfrosto.tdd.services.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.repositories.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Component
+public class BookIsbnCache {
+
+    private final BookRepository bookRepository;
+    private final Cache<String, Optional<Book>> cache;
+
+    @Autowired
+    public BookIsbnCache(BookRepository bookRepository,
+                         @Value("${book.cache.isbn.maximum-size:10000}") long maximumSize,
+                         @Value("${book.cache.isbn.ttl:10m}") Duration ttl,
+                         @Value("${book.cache.isbn.negative-ttl:30s}") Duration negativeTtl) {
+        this(bookRepository, maximumSize, ttl, negativeTtl, Ticker.systemTicker());
+    }
+
+    BookIsbnCache(BookRepository bookRepository, long maximumSize, Duration ttl, Duration negativeTtl, Ticker ticker) {
+        this.bookRepository = bookRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new PositiveNegativeExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Book> findByIsbn(String isbn) {
+        return cache.get(isbn, key -> bookRepository.findByIsbn(key).map(this::copy))
+                .map(this::copy);
+    }
+
+    public boolean existsByIsbn(String isbn) {
+        return findByIsbn(isbn).isPresent();
+    }
+
+    public void evict(String isbn) {
+        evict(Collections.singletonList(isbn));
+    }
+
+    public void evict(Collection<String> isbns) {
+        List<String> keys = isbns.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        cache.invalidateAll(keys);
+
+        // a reader may reload the old row before the writing transaction commits
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidateAll(keys);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "book.isbn");
+    }
+
+    private Book copy(Book book) {
+        return Book.builder()
+                .id(book.getId())
+                .name(book.getName())
+                .author(book.getAuthor())
+                .isbn(book.getIsbn())
+                .version(book.getVersion())
+                .build();
+    }
+
+    private static class PositiveNegativeExpiry implements Expiry<String, Optional<Book>> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        PositiveNegativeExpiry(long ttlNanos, long negativeTtlNanos) {
+            this.ttlNanos = ttlNanos;
+            this.negativeTtlNanos = negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Optional<Book> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<Book> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<Book> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
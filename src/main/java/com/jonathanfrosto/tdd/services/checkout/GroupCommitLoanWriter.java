@@ -0,0 +1,280 @@
+package com.jonathanfrosto.tdd.services.checkout;
+
+import com.jonathanfrosto.tdd.domain.dto.LoanCheckoutResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.services.LoanService;
+import com.jonathanfrosto.tdd.services.cache.BookIsbnCache;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// checkouts wait in a bounded queue and a single writer commits them in micro-batches, one transaction per batch
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "loan.group-commit.enabled", havingValue = "true")
+public class GroupCommitLoanWriter implements SmartLifecycle {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final LoanService loanService;
+    private final BookIsbnCache bookIsbnCache;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final BlockingQueue<PendingLoan> queue;
+    private final int batchSize;
+    private final long windowNanos;
+    private final Duration timeout;
+    // callers offer under the read lock and stop flips running under the write lock, so nothing is queued after shutdown
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+
+    private volatile boolean running;
+    private volatile DistributionSummary batchSizes;
+    private Thread writer;
+
+    public GroupCommitLoanWriter(LoanService loanService,
+                                 BookIsbnCache bookIsbnCache,
+                                 ObjectProvider<MeterRegistry> meterRegistry,
+                                 @Value("${loan.group-commit.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${loan.group-commit.batch-size:100}") int batchSize,
+                                 @Value("${loan.group-commit.window:2ms}") Duration window,
+                                 @Value("${loan.group-commit.timeout:30s}") Duration timeout) {
+        this.loanService = loanService;
+        this.bookIsbnCache = bookIsbnCache;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.windowNanos = window.toNanos();
+        this.timeout = timeout;
+    }
+
+    public LoanDTO save(LoanDTO loan) {
+        // validated on the caller thread, so an unknown book never takes a queue slot
+        if (!bookIsbnCache.existsByIsbn(loan.getIsbn())) {
+            throw new BusinessException("Book not found", 404);
+        }
+
+        PendingLoan pending = new PendingLoan(loan);
+        if (!offer(pending)) {
+            throw new BusinessException("Too many checkouts, try again later", 503);
+        }
+
+        try {
+            return pending.result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (TimeoutException e) {
+            // only a checkout still in the queue can be dropped, one already in a batch gets the writer's answer
+            if (pending.cancel()) {
+                throw new BusinessException("Checkout timed out, try again later", 503);
+            }
+            return join(pending);
+        } catch (InterruptedException e) {
+            if (pending.cancel()) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("Checkout interrupted", 503);
+            }
+            try {
+                return join(pending);
+            } finally {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean offer(PendingLoan pending) {
+        lifecycle.readLock().lock();
+        try {
+            return running && queue.offer(pending);
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
+
+    // a claimed checkout gets one more timeout to be written, a stalled batch must not pin the caller thread forever
+    private LoanDTO join(PendingLoan pending) {
+        try {
+            return pending.result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (TimeoutException e) {
+            throw new BusinessException("Checkout is still being written, check the loans before trying again", 503);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Checkout interrupted", 503);
+        }
+    }
+
+    private RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    @Override
+    public void start() {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("loan.group-commit.queue", queue, BlockingQueue::size).register(registry);
+            batchSizes = DistributionSummary.builder("loan.group-commit.batch.size").register(registry);
+        }
+
+        running = true;
+        writer = new Thread(this::run, "loan-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        lifecycle.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        try {
+            writer.join(timeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PendingLoan> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(pending -> pending.result.completeExceptionally(
+                new BusinessException("Checkout not written, the server is shutting down", 503)));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // stops after the web server, so checkouts it already accepted are still written
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void run() {
+        List<PendingLoan> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                fill(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // takes what is queued up to the batch size and waits at most one window for the rest
+    private void fill(List<PendingLoan> batch) throws InterruptedException {
+        PendingLoan first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            PendingLoan next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<PendingLoan> batch) {
+        // claimed checkouts are no longer cancelled by a caller timeout, those already cancelled are dropped
+        batch.removeIf(pending -> !pending.claim());
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batchSizes != null) {
+            batchSizes.record(batch.size());
+        }
+
+        List<LoanCheckoutResultDTO> results;
+        try {
+            results = loanService.saveAll(batch.stream().map(pending -> pending.loan).collect(Collectors.toList()));
+        } catch (RuntimeException e) {
+            // a checkout committed outside the batch fails the whole transaction, one by one each gets its own answer
+            log.warn("Group commit of {} loans failed, writing them one by one", batch.size(), e);
+            batch.forEach(this::writeOne);
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            LoanCheckoutResultDTO result = results.get(i);
+            if (result.getStatus() == LoanCheckoutResultDTO.Status.CREATED) {
+                batch.get(i).result.complete(result.getLoan());
+            } else {
+                batch.get(i).result.completeExceptionally(
+                        new BusinessException(result.getMessage(), result.getStatus().getStatusCode()));
+            }
+        }
+    }
+
+    private void writeOne(PendingLoan pending) {
+        try {
+            pending.result.complete(loanService.save(pending.loan));
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    private static class PendingLoan {
+
+        private enum State {
+            QUEUED, CLAIMED, CANCELLED
+        }
+
+        private final LoanDTO loan;
+        private final CompletableFuture<LoanDTO> result = new CompletableFuture<>();
+        private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+
+        PendingLoan(LoanDTO loan) {
+            this.loan = loan;
+        }
+
+        boolean claim() {
+            return state.compareAndSet(State.QUEUED, State.CLAIMED);
+        }
+
+        boolean cancel() {
+            return state.compareAndSet(State.QUEUED, State.CANCELLED);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.jonathanfrosto.tdd.services.impl;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookImportResultDTO;
+import com.jonathanfrosto.tdd.services.BookImportService;
+import com.jonathanfrosto.tdd.services.BookService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private final BookService bookService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+
+    public BookImportServiceImpl(BookService bookService,
+                                 ObjectMapper objectMapper,
+                                 Validator validator,
+                                 @Value("${book.import.batch-size:500}") int batchSize) {
+        this.bookService = bookService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public List<BookImportResultDTO> importBooks(InputStream content) {
+        List<BookImportResultDTO> results = new ArrayList<>();
+        Set<String> seenIsbns = new HashSet<>();
+
+        List<BookDTO> batch = new ArrayList<>(batchSize);
+        List<Integer> batchRows = new ArrayList<>(batchSize);
+
+        int row = 0;
+        try (MappingIterator<BookDTO> books = objectMapper.readerFor(BookDTO.class).readValues(content)) {
+            while (books.hasNextValue()) {
+                BookDTO book = books.nextValue();
+                row++;
+
+                String violations = validate(book);
+                if (violations != null) {
+                    results.add(rejected(row, book, BookImportResultDTO.Status.INVALID, violations));
+                } else if (!seenIsbns.add(book.getIsbn())) {
+                    results.add(rejected(row, book, BookImportResultDTO.Status.DUPLICATED, "Duplicated isbn"));
+                } else {
+                    results.add(null);
+                    batch.add(book);
+                    batchRows.add(row);
+                }
+
+                if (batch.size() == batchSize) {
+                    flush(batch, batchRows, results);
+                }
+            }
+        } catch (IOException e) {
+            // the earlier batches are already committed, so the caller gets their results and where reading stopped
+            flush(batch, batchRows, results);
+            results.add(BookImportResultDTO.builder()
+                    .row(row + 1)
+                    .status(BookImportResultDTO.Status.MALFORMED)
+                    .message("Malformed book, the rows after it were not imported")
+                    .build());
+            return results;
+        }
+
+        flush(batch, batchRows, results);
+        return results;
+    }
+
+    private void flush(List<BookDTO> batch, List<Integer> batchRows, List<BookImportResultDTO> results) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<BookImportResultDTO> saved;
+        try {
+            saved = bookService.saveAll(batch);
+        } catch (DataIntegrityViolationException e) {
+            // a book with one of these isbns was created since the lookup, retry one by one to find which
+            saved = batch.stream().map(this::saveOne).collect(Collectors.toList());
+        }
+
+        for (int i = 0; i < saved.size(); i++) {
+            BookImportResultDTO result = saved.get(i);
+            int row = batchRows.get(i);
+            result.setRow(row);
+            results.set(row - 1, result);
+        }
+
+        batch.clear();
+        batchRows.clear();
+    }
+
+    private BookImportResultDTO saveOne(BookDTO book) {
+        try {
+            return bookService.saveAll(Collections.singletonList(book)).get(0);
+        } catch (DataIntegrityViolationException e) {
+            return BookImportResultDTO.builder()
+                    .isbn(book.getIsbn())
+                    .status(BookImportResultDTO.Status.DUPLICATED)
+                    .message("Duplicated isbn")
+                    .build();
+        }
+    }
+
+    private String validate(BookDTO book) {
+        Set<ConstraintViolation<BookDTO>> violations = validator.validate(book);
+        if (violations.isEmpty()) {
+            return null;
+        }
+
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private BookImportResultDTO rejected(int row, BookDTO book, BookImportResultDTO.Status status, String message) {
+        return BookImportResultDTO.builder()
+                .row(row)
+                .isbn(book.getIsbn())
+                .status(status)
+                .message(message)
+                .build();
+    }
+}
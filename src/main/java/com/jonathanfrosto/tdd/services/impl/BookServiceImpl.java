@@ -1,52 +1,162 @@
 package com.jonathanfrosto.tdd.services.impl;
 
 import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookImportResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookLookupResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
 import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.mappers.BookMapper;
 import com.jonathanfrosto.tdd.exceptions.BusinessException;
 import com.jonathanfrosto.tdd.repositories.BookRepository;
 import com.jonathanfrosto.tdd.services.BookService;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import com.jonathanfrosto.tdd.services.cache.BookIsbnCache;
+import com.jonathanfrosto.tdd.services.cache.CountCache;
+import com.jonathanfrosto.tdd.services.search.BookSearchIndex;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Transactional
 @Service
 public class BookServiceImpl implements BookService {
 
     public static final String BOOK_NOT_FOUND = "Book not found";
+    public static final String BOOK_CHANGED = "Book was changed by another request";
     BookRepository bookRepository;
-    ModelMapper modelMapper;
+    BookIsbnCache bookIsbnCache;
+    CountCache countCache;
+    BookSearchIndex bookSearchIndex;
+    BookMapper bookMapper;
 
-    public BookServiceImpl(BookRepository bookRepository, ModelMapper modelMapper) {
+    public BookServiceImpl(BookRepository bookRepository,
+                           BookIsbnCache bookIsbnCache,
+                           CountCache countCache,
+                           BookSearchIndex bookSearchIndex,
+                           BookMapper bookMapper) {
         this.bookRepository = bookRepository;
-        this.modelMapper = modelMapper;
+        this.bookIsbnCache = bookIsbnCache;
+        this.countCache = countCache;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookMapper = bookMapper;
     }
 
     @Override
     public BookDTO save(BookDTO bookDTO) {
-        if (bookRepository.existsByIsbn(bookDTO.getIsbn())) {
+        if (bookIsbnCache.existsByIsbn(bookDTO.getIsbn())) {
             throw new BusinessException("Duplicated isbn", 409);
         }
 
-        Book entity = modelMapper.map(bookDTO, Book.class);
-        return modelMapper.map(bookRepository.save(entity), BookDTO.class);
+        Book entity = bookMapper.toEntity(bookDTO);
+        Book saved = bookRepository.save(entity);
+        bookIsbnCache.evict(bookDTO.getIsbn());
+        bookSearchIndex.index(saved);
+
+        return bookMapper.toDto(saved);
+    }
+
+    @Override
+    public List<BookImportResultDTO> saveAll(List<BookDTO> bookDTOS) {
+        Set<String> existingIsbns = bookRepository.findExistingIsbns(bookDTOS.stream()
+                .map(BookDTO::getIsbn)
+                .collect(Collectors.toSet()));
+
+        List<BookImportResultDTO> results = new ArrayList<>(bookDTOS.size());
+        List<Book> entities = new ArrayList<>(bookDTOS.size());
+
+        for (BookDTO bookDTO : bookDTOS) {
+            BookImportResultDTO result = BookImportResultDTO.builder()
+                    .isbn(bookDTO.getIsbn())
+                    .build();
+
+            if (existingIsbns.contains(bookDTO.getIsbn())) {
+                result.setStatus(BookImportResultDTO.Status.DUPLICATED);
+                result.setMessage("Duplicated isbn");
+            } else {
+                entities.add(bookMapper.toEntity(bookDTO));
+                result.setStatus(BookImportResultDTO.Status.CREATED);
+            }
+
+            results.add(result);
+        }
+
+        List<Book> saved = bookRepository.saveAll(entities);
+        bookRepository.flush();
+        bookIsbnCache.evict(saved.stream().map(Book::getIsbn).collect(Collectors.toList()));
+        bookSearchIndex.index(saved);
+
+        int index = 0;
+        for (BookImportResultDTO result : results) {
+            if (result.getStatus() == BookImportResultDTO.Status.CREATED) {
+                result.setId(saved.get(index++).getId());
+            }
+        }
+
+        return results;
     }
 
     @Override
     public BookDTO getById(Long id) {
         return bookRepository.findById(id)
-                .map(entity -> modelMapper.map(entity, BookDTO.class))
+                .map(bookMapper::toDto)
                 .orElseThrow(() -> new BusinessException(BOOK_NOT_FOUND, 404));
     }
 
+    // one in query for the whole list, answered in request order with an entry per requested key
+    @Transactional(readOnly = true)
+    @Override
+    public List<BookLookupResultDTO> findAllById(List<Long> ids) {
+        validateLookup(ids);
+
+        Map<Long, BookDTO> booksById = bookMapper.toDtos(bookRepository.findAllById(new HashSet<>(ids))).stream()
+                .collect(Collectors.toMap(BookDTO::getId, Function.identity()));
+
+        return ids.stream()
+                .map(id -> lookupResult(booksById.get(id)).id(id).build())
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<BookLookupResultDTO> findAllByIsbn(List<String> isbns) {
+        validateLookup(isbns);
+
+        Map<String, BookDTO> booksByIsbn = bookMapper.toDtos(bookRepository.findByIsbnIn(new HashSet<>(isbns))).stream()
+                .collect(Collectors.toMap(BookDTO::getIsbn, Function.identity()));
+
+        return isbns.stream()
+                .map(isbn -> lookupResult(booksByIsbn.get(isbn)).isbn(isbn).build())
+                .collect(Collectors.toList());
+    }
+
+    private static void validateLookup(List<?> keys) {
+        if (keys.size() > BookLookupResultDTO.MAX_KEYS) {
+            throw new BusinessException("At most " + BookLookupResultDTO.MAX_KEYS + " books can be looked up at once");
+        }
+    }
+
+    private static BookLookupResultDTO.BookLookupResultDTOBuilder lookupResult(BookDTO book) {
+        return BookLookupResultDTO.builder()
+                .status(book == null ? BookLookupResultDTO.Status.NOT_FOUND : BookLookupResultDTO.Status.FOUND)
+                .book(book);
+    }
+
     @Override
     public void delete(Long id) {
         if ( id == null ) {
@@ -60,6 +170,8 @@ public class BookServiceImpl implements BookService {
         }
 
         bookRepository.delete(entity.get());
+        bookIsbnCache.evict(entity.get().getIsbn());
+        bookSearchIndex.remove(id);
     }
 
     @Override
@@ -72,33 +184,80 @@ public class BookServiceImpl implements BookService {
                 .findById(bookDTO.getId())
                 .orElseThrow(() -> new BusinessException(BOOK_NOT_FOUND, 404));
 
+        // a version on the request is the one the client last read (If-Match)
+        if (bookDTO.getVersion() != null && !bookDTO.getVersion().equals(entity.getVersion())) {
+            throw new BusinessException(BOOK_CHANGED, 412);
+        }
+
+        bookIsbnCache.evict(Arrays.asList(entity.getIsbn(), bookDTO.getIsbn()));
+
         entity.setAuthor(bookDTO.getAuthor());
         entity.setName(bookDTO.getName());
         entity.setIsbn(bookDTO.getIsbn());
 
-        bookRepository.save(entity);
+        // flushed here so a concurrent update surfaces as a conflict and the new version can be returned
+        try {
+            bookRepository.save(entity);
+            bookRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            throw new BusinessException(BOOK_CHANGED, bookDTO.getVersion() == null ? 409 : 412);
+        }
+        bookSearchIndex.index(entity);
 
+        bookDTO.setVersion(entity.getVersion());
         return bookDTO;
     }
 
     @Override
     public Page<BookDTO> find(BookDTO bookDTO, Pageable pageable) {
-        Book entityExample = modelMapper.map(bookDTO, Book.class);
+        Example<Book> example = Example.of(bookMapper.toEntity(bookDTO));
+
+        Slice<Book> slice = bookRepository.findSliceByExample(example, pageable);
+
+        return PageableExecutionUtils.getPage(bookMapper.toDtos(slice.getContent()), pageable,
+                () -> countCache.get(() -> bookRepository.count(example),
+                        "book", bookDTO.getId(), bookDTO.getName(), bookDTO.getIsbn(), bookDTO.getAuthor()));
+    }
+
+    @Override
+    public Slice<BookDTO> findSlice(BookDTO bookDTO, Pageable pageable) {
+        return bookRepository
+                .findSliceByExample(Example.of(bookMapper.toEntity(bookDTO)), pageable)
+                .map(bookMapper::toDto);
+    }
 
-        Page<Book> pageEntities = bookRepository.findAll(Example.of(entityExample), pageable);
+    @Override
+    public CursorSliceDTO<BookDTO> findAfter(BookDTO bookDTO, KeysetCursor cursor, int size) {
+        if (size < 1 || size > CursorSliceDTO.MAX_SIZE) {
+            throw new BusinessException("Size must be between 1 and " + CursorSliceDTO.MAX_SIZE);
+        }
 
-        List<BookDTO> dtos = modelMapper.map(pageEntities.getContent(), new TypeToken<List<BookDTO>>() {
-        }.getType());
+        List<Book> entities = bookRepository.findByExampleAfter(Example.of(bookMapper.toEntity(bookDTO)), cursor, size + 1);
 
-        return new PageImpl<>(dtos, pageable, pageEntities.getTotalElements());
+        boolean hasNext = entities.size() > size;
+        List<Book> content = hasNext ? entities.subList(0, size) : entities;
+
+        return CursorSliceDTO.<BookDTO>builder()
+                .content(bookMapper.toDtos(content))
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? KeysetCursor.after(content.get(size - 1).getId()).encode() : null)
+                .build();
+    }
+
+    // answered from memory, no need to open a transaction
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public Slice<BookDTO> search(String query, Pageable pageable) {
+        return bookSearchIndex.search(query, pageable);
     }
 
     @Override
     public BookDTO findByIsbn(String isbn) {
-        Book entity = bookRepository
+        Book entity = bookIsbnCache
                 .findByIsbn(isbn)
                 .orElseThrow(() -> new BusinessException(BOOK_NOT_FOUND, 404));
 
-        return modelMapper.map(entity, BookDTO.class);
+        return bookMapper.toDto(entity);
     }
 }
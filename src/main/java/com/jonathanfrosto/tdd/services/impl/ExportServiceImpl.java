@@ -0,0 +1,132 @@
+package com.jonathanfrosto.tdd.services.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.ExportFormat;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.entities.Loan;
+import com.jonathanfrosto.tdd.domain.mappers.BookMapper;
+import com.jonathanfrosto.tdd.domain.mappers.LoanMapper;
+import com.jonathanfrosto.tdd.repositories.BookRepository;
+import com.jonathanfrosto.tdd.repositories.LoanRepository;
+import com.jonathanfrosto.tdd.services.ExportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Example;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// rows go from a forward-only cursor straight to the response, nothing holds more than the current row
+@Transactional(readOnly = true)
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final String[] BOOK_COLUMNS = {"id", "name", "isbn", "author"};
+    private static final String[] LOAN_COLUMNS = {"id", "isbn", "customer", "loanDate", "returned"};
+
+    private final BookRepository bookRepository;
+    private final LoanRepository loanRepository;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
+    private final ObjectWriter jsonWriter;
+    private final int fetchSize;
+
+    public ExportServiceImpl(BookRepository bookRepository,
+                             LoanRepository loanRepository,
+                             BookMapper bookMapper,
+                             LoanMapper loanMapper,
+                             ObjectMapper objectMapper,
+                             @Value("${export.fetch-size:1000}") int fetchSize) {
+        this.bookRepository = bookRepository;
+        this.loanRepository = loanRepository;
+        this.bookMapper = bookMapper;
+        this.loanMapper = loanMapper;
+        // the servlet output buffer decides when to flush, not every row
+        this.jsonWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void exportBooks(BookDTO filter, ExportFormat format, OutputStream out) throws IOException {
+        Example<Book> example = Example.of(bookMapper.toEntity(filter));
+
+        try (Stream<BookDTO> books = bookRepository.streamByExample(example, fetchSize).map(bookMapper::toDto)) {
+            write(books, format, out, BOOK_COLUMNS, book -> new Object[]{
+                    book.getId(), book.getName(), book.getIsbn(), book.getAuthor()});
+        }
+    }
+
+    @Override
+    public void exportLoans(LoanFilterDTO filter, ExportFormat format, OutputStream out) throws IOException {
+        Example<Loan> example = Example.of(loanMapper.toExample(filter));
+
+        try (Stream<LoanDTO> loans = loanRepository.streamByExample(example, fetchSize)) {
+            write(loans, format, out, LOAN_COLUMNS, loan -> new Object[]{
+                    loan.getId(), loan.getIsbn(), loan.getCustomer(), loan.getLoanDate(), loan.getReturned()});
+        }
+    }
+
+    private <T> void write(Stream<T> rows, ExportFormat format, OutputStream out,
+                           String[] columns, Function<T, Object[]> values) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writeCsv(rows.iterator(), out, columns, values);
+        } else {
+            writeNdjson(rows.iterator(), out);
+        }
+    }
+
+    private <T> void writeNdjson(Iterator<T> rows, OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonWriter.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (rows.hasNext()) {
+                jsonWriter.writeValue(generator, rows.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private <T> void writeCsv(Iterator<T> rows, OutputStream out,
+                              String[] columns, Function<T, Object[]> values) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeCsvLine(writer, columns);
+        while (rows.hasNext()) {
+            writeCsvLine(writer, values.apply(rows.next()));
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write(escapeCsv(values[i].toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,50 +1,77 @@
 package com.jonathanfrosto.tdd.services.impl;
 
+import com.jonathanfrosto.tdd.domain.dto.BookAvailabilityDTO;
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.dto.LoanCheckoutResultDTO;
 import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
 import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanReturnDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanReturnResultDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
 import com.jonathanfrosto.tdd.domain.entities.Loan;
+import com.jonathanfrosto.tdd.domain.mappers.LoanMapper;
 import com.jonathanfrosto.tdd.exceptions.BusinessException;
-import com.jonathanfrosto.tdd.repositories.BookRepository;
 import com.jonathanfrosto.tdd.repositories.LoanRepository;
+import com.jonathanfrosto.tdd.repositories.LoanRepository.LoanStatus;
 import com.jonathanfrosto.tdd.services.LoanService;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import com.jonathanfrosto.tdd.services.availability.BookAvailabilityIndex;
+import com.jonathanfrosto.tdd.services.cache.BookIsbnCache;
+import com.jonathanfrosto.tdd.services.cache.CountCache;
+import com.jonathanfrosto.tdd.services.overdue.OverduePolicy;
+import com.jonathanfrosto.tdd.services.stats.LoanStatsCollector;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Transactional
 @Service
 public class LoanServiceImpl implements LoanService {
 
-    private final ModelMapper modelMapper;
+    private static final String ACTIVE_LOAN_CONSTRAINT = "ux_loan_active_book";
+    private static final int RETURN_CHUNK_SIZE = 1000;
+
+    private final LoanMapper loanMapper;
     private final LoanRepository loanRepository;
-    private final BookRepository bookRepository;
+    private final BookIsbnCache bookIsbnCache;
+    private final CountCache countCache;
+    private final OverduePolicy overduePolicy;
+    private final BookAvailabilityIndex bookAvailabilityIndex;
+    private final LoanStatsCollector loanStatsCollector;
 
-    public LoanServiceImpl(ModelMapper modelMapper,
+    public LoanServiceImpl(LoanMapper loanMapper,
                            LoanRepository loanRepository,
-                           BookRepository bookRepository) {
-        this.modelMapper = modelMapper;
+                           BookIsbnCache bookIsbnCache,
+                           CountCache countCache,
+                           OverduePolicy overduePolicy,
+                           BookAvailabilityIndex bookAvailabilityIndex,
+                           LoanStatsCollector loanStatsCollector) {
+        this.loanMapper = loanMapper;
         this.loanRepository = loanRepository;
-        this.bookRepository = bookRepository;
+        this.bookIsbnCache = bookIsbnCache;
+        this.countCache = countCache;
+        this.overduePolicy = overduePolicy;
+        this.bookAvailabilityIndex = bookAvailabilityIndex;
+        this.loanStatsCollector = loanStatsCollector;
     }
 
     @Override
     public LoanDTO save(LoanDTO loan) {
-        var book = bookRepository
+        var book = bookIsbnCache
                 .findByIsbn(loan.getIsbn())
                 .orElseThrow(() -> new BusinessException("Book not found", 404));
 
-        if (loanRepository.existsByBookAndReturnedFalse(book)) {
-            throw new BusinessException("Book already loaned", 409);
-        }
-
         Loan entity = Loan.builder()
                 .customer(loan.getCustomer())
                 .book(book)
@@ -52,7 +79,85 @@ public class LoanServiceImpl implements LoanService {
                 .returned(false)
                 .build();
 
-        return modelMapper.map(loanRepository.save(entity), LoanDTO.class);
+        // ux_loan_active_book rejects a second open loan for the same book, so there is no check before the insert
+        try {
+            Loan saved = loanRepository.saveAndFlush(entity);
+            bookAvailabilityIndex.markLoaned(book.getId());
+            loanStatsCollector.recordCheckout(book.getId());
+            return loanMapper.toDto(saved);
+        } catch (DataIntegrityViolationException e) {
+            if (isActiveLoanViolation(e)) {
+                throw new BusinessException("Book already loaned", 409);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public List<LoanCheckoutResultDTO> saveAll(List<LoanDTO> loans) {
+        Set<String> loaned = loanRepository.findOpenByIsbnIn(loans.stream()
+                        .map(LoanDTO::getIsbn)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .map(LoanStatus::getIsbn)
+                .collect(Collectors.toSet());
+
+        LocalDate today = LocalDate.now();
+        List<LoanCheckoutResultDTO> results = new ArrayList<>(loans.size());
+        List<Loan> entities = new ArrayList<>(loans.size());
+
+        for (LoanDTO loan : loans) {
+            LoanCheckoutResultDTO result = LoanCheckoutResultDTO.builder()
+                    .isbn(loan.getIsbn())
+                    .build();
+
+            Optional<Book> book = bookIsbnCache.findByIsbn(loan.getIsbn());
+            if (book.isEmpty()) {
+                result.setStatus(LoanCheckoutResultDTO.Status.BOOK_NOT_FOUND);
+                result.setMessage("Book not found");
+            } else if (!loaned.add(loan.getIsbn())) {
+                // the first checkout of a book in the batch wins, as the first commit would have
+                result.setStatus(LoanCheckoutResultDTO.Status.ALREADY_LOANED);
+                result.setMessage("Book already loaned");
+            } else {
+                entities.add(Loan.builder()
+                        .customer(loan.getCustomer())
+                        .book(book.get())
+                        .loanDate(today)
+                        .returned(false)
+                        .build());
+                result.setStatus(LoanCheckoutResultDTO.Status.CREATED);
+            }
+
+            results.add(result);
+        }
+
+        // a checkout committed outside the batch since the lookup still fails the insert and rolls the batch back
+        List<Loan> saved = loanRepository.saveAll(entities);
+        loanRepository.flush();
+        List<Long> bookIds = entities.stream()
+                .map(loan -> loan.getBook().getId())
+                .collect(Collectors.toList());
+        bookAvailabilityIndex.markLoaned(bookIds);
+        loanStatsCollector.recordCheckouts(bookIds);
+
+        int index = 0;
+        for (LoanCheckoutResultDTO result : results) {
+            if (result.getStatus() == LoanCheckoutResultDTO.Status.CREATED) {
+                result.setLoan(loanMapper.toDto(saved.get(index++)));
+            }
+        }
+
+        return results;
+    }
+
+    private boolean isActiveLoanViolation(DataIntegrityViolationException e) {
+        if (!(e.getCause() instanceof ConstraintViolationException)) {
+            return false;
+        }
+
+        String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+        return constraintName != null && constraintName.toLowerCase().contains(ACTIVE_LOAN_CONSTRAINT);
     }
 
     @Override
@@ -60,30 +165,192 @@ public class LoanServiceImpl implements LoanService {
         Loan entity = loanRepository
                 .findById(id)
                 .orElseThrow(() -> new BusinessException("Loan not found", 404));
+        Long bookId = entity.getBook().getId();
 
-        entity.setReturned(true);
-        loanRepository.save(entity);
+        // only the return whose conditional update closed the loan frees the book, a concurrent or repeated return of
+        // it updates nothing and the book may be loaned again by then
+        if (loanRepository.markReturned(Collections.singletonList(id)) == 1) {
+            bookAvailabilityIndex.markReturned(bookId);
+            loanStatsCollector.recordReturns(1);
+        }
     }
 
     @Override
-    public Page<LoanDTO> find(LoanFilterDTO loanFilterDTO, Pageable pageable) {
-        Loan entityExample = modelMapper.map(loanFilterDTO, Loan.class);
+    public LoanReturnResultDTO giveBackBooks(LoanReturnDTO request) {
+        // open loan id to its book id
+        Map<Long, Long> open = new LinkedHashMap<>();
+        List<Long> notFound = new ArrayList<>();
+        List<Long> alreadyReturned = new ArrayList<>();
+        List<String> notLoaned = new ArrayList<>();
+
+        for (List<Long> ids : chunks(request.getIds())) {
+            Map<Long, LoanStatus> statusById = loanRepository.findStatusByIdIn(ids).stream()
+                    .collect(Collectors.toMap(LoanStatus::getId, status -> status));
+
+            for (Long id : ids) {
+                LoanStatus status = statusById.get(id);
+                if (status == null) {
+                    notFound.add(id);
+                } else if (status.isReturned()) {
+                    alreadyReturned.add(id);
+                } else {
+                    open.put(id, status.getBookId());
+                }
+            }
+        }
+
+        for (List<String> isbns : chunks(request.getIsbns())) {
+            Map<String, LoanStatus> openByIsbn = loanRepository.findOpenByIsbnIn(isbns).stream()
+                    .collect(Collectors.toMap(LoanStatus::getIsbn, status -> status));
+
+            for (String isbn : isbns) {
+                LoanStatus status = openByIsbn.get(isbn);
+                if (status == null) {
+                    notLoaned.add(isbn);
+                } else {
+                    open.put(status.getId(), status.getBookId());
+                }
+            }
+        }
+
+        List<Long> returned = new ArrayList<>();
+        List<Long> bookIds = new ArrayList<>();
+        int updated = 0;
+        for (List<Long> ids : chunks(open.keySet())) {
+            // locks the loans still open, so the update closes exactly these and a loan closed meanwhile frees no book
+            Map<Long, Long> locked = loanRepository.lockOpenByIdIn(ids).stream()
+                    .collect(Collectors.toMap(LoanStatus::getId, LoanStatus::getBookId));
+            if (locked.isEmpty()) {
+                alreadyReturned.addAll(ids);
+                continue;
+            }
+
+            List<Long> lockedIds = new ArrayList<>();
+            for (Long id : ids) {
+                if (locked.containsKey(id)) {
+                    lockedIds.add(id);
+                } else {
+                    alreadyReturned.add(id);
+                }
+            }
+            updated += loanRepository.markReturned(lockedIds);
+            returned.addAll(lockedIds);
+            bookIds.addAll(locked.values());
+        }
+        bookAvailabilityIndex.markReturned(bookIds);
+        loanStatsCollector.recordReturns(updated);
+
+        return LoanReturnResultDTO.builder()
+                .returned(returned)
+                .notFound(notFound)
+                .alreadyReturned(alreadyReturned)
+                .notLoaned(notLoaned)
+                .build();
+    }
+
+    private static <T> List<List<T>> chunks(Collection<T> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<T> distinct = new ArrayList<>(new LinkedHashSet<>(values));
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += RETURN_CHUNK_SIZE) {
+            chunks.add(distinct.subList(from, Math.min(from + RETURN_CHUNK_SIZE, distinct.size())));
+        }
+        return chunks;
+    }
+
+    // answered from memory, no need to open a transaction
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public BookAvailabilityDTO findAvailability(Collection<Long> bookIds) {
+        if (bookIds.size() > BookAvailabilityDTO.MAX_IDS) {
+            throw new BusinessException("At most " + BookAvailabilityDTO.MAX_IDS + " ids are allowed");
+        }
+
+        return bookAvailabilityIndex.availability(bookIds);
+    }
 
-        Page<Loan> pageEntities = loanRepository.findAll(Example.of(entityExample), pageable);
+    @Override
+    public Page<LoanDTO> find(LoanFilterDTO loanFilterDTO, Pageable pageable) {
+        Example<Loan> example = Example.of(loanMapper.toExample(loanFilterDTO));
 
-        List<LoanDTO> dtos = modelMapper.map(pageEntities.getContent(), new TypeToken<List<LoanDTO>>() {
-        }.getType());
+        Slice<LoanDTO> slice = loanRepository.findSliceByExample(example, pageable);
 
-        return new PageImpl<>(dtos, pageable, pageEntities.getTotalElements());
+        return PageableExecutionUtils.getPage(slice.getContent(), pageable,
+                () -> countCache.get(() -> loanRepository.count(example),
+                        "loan", loanFilterDTO.getIsbn(), loanFilterDTO.getCustomer()));
     }
 
     @Override
     public Page<LoanDTO> findByBook(Long id, Pageable pagaRequest) {
-        Page<Loan> pageEntities = loanRepository.findByBookId(id, pagaRequest);
+        Slice<LoanDTO> slice = loanRepository.findSliceByBookId(id, pagaRequest);
+
+        return PageableExecutionUtils.getPage(slice.getContent(), pagaRequest,
+                () -> countCache.get(() -> loanRepository.countByBookId(id), "loan-book", id));
+    }
+
+    @Override
+    public Slice<LoanDTO> findSlice(LoanFilterDTO loanFilterDTO, Pageable pageable) {
+        return loanRepository.findSliceByExample(Example.of(loanMapper.toExample(loanFilterDTO)), pageable);
+    }
+
+    @Override
+    public Slice<LoanDTO> findSliceByBook(Long id, Pageable pageable) {
+        return loanRepository.findSliceByBookId(id, pageable);
+    }
+
+    @Override
+    public CursorSliceDTO<LoanDTO> findAfter(LoanFilterDTO loanFilterDTO, KeysetCursor cursor, int size) {
+        validateSize(size);
+
+        Loan entityExample = loanMapper.toExample(loanFilterDTO);
+        return toSlice(loanRepository.findByExampleAfter(Example.of(entityExample), cursor.requireDate(), size + 1), size);
+    }
+
+    @Override
+    public CursorSliceDTO<LoanDTO> findByBookAfter(Long id, KeysetCursor cursor, int size) {
+        validateSize(size);
+
+        return toSlice(loanRepository.findByBookIdAfter(id, cursor.requireDate(), size + 1), size);
+    }
 
-        List<LoanDTO> dtos = modelMapper.map(pageEntities.getContent(), new TypeToken<List<LoanDTO>>() {
-        }.getType());
+    @Override
+    public CursorSliceDTO<LoanDTO> findByCustomerAfter(String customer, Boolean returned, KeysetCursor cursor, int size) {
+        validateSize(size);
+
+        return toSlice(loanRepository.findByCustomerAfter(customer, returned, cursor.requireDate(), size + 1), size);
+    }
+
+    @Override
+    public CursorSliceDTO<LoanDTO> findOverdueAfter(KeysetCursor cursor, int size) {
+        validateSize(size);
 
-        return new PageImpl<>(dtos, pagaRequest, pageEntities.getTotalElements());
+        return toSlice(loanRepository.findOpenBetween(null, overduePolicy.cutoff(), cursor.requireDate(), size + 1), size);
+    }
+
+    private void validateSize(int size) {
+        if (size < 1 || size > CursorSliceDTO.MAX_SIZE) {
+            throw new BusinessException("Size must be between 1 and " + CursorSliceDTO.MAX_SIZE);
+        }
+    }
+
+    private CursorSliceDTO<LoanDTO> toSlice(List<LoanDTO> loans, int size) {
+        boolean hasNext = loans.size() > size;
+        List<LoanDTO> content = hasNext ? loans.subList(0, size) : loans;
+
+        String nextCursor = null;
+        if (hasNext) {
+            LoanDTO last = content.get(size - 1);
+            nextCursor = KeysetCursor.after(last.getLoanDate(), last.getId()).encode();
+        }
+
+        return CursorSliceDTO.<LoanDTO>builder()
+                .content(content)
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
     }
 }
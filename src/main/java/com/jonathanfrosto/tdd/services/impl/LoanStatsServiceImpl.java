@@ -0,0 +1,96 @@
+package com.jonathanfrosto.tdd.services.impl;
+
+import com.jonathanfrosto.tdd.domain.dto.BookLoanStatsDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanStatsDTO;
+import com.jonathanfrosto.tdd.domain.entities.BookLoanStats;
+import com.jonathanfrosto.tdd.domain.entities.DailyLoanStats;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.repositories.BookLoanStatsRepository;
+import com.jonathanfrosto.tdd.repositories.DailyLoanStatsRepository;
+import com.jonathanfrosto.tdd.services.LoanStatsService;
+import com.jonathanfrosto.tdd.services.availability.BookAvailabilityIndex;
+import com.jonathanfrosto.tdd.services.stats.LoanStatsCollector;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@Transactional
+@Service
+public class LoanStatsServiceImpl implements LoanStatsService {
+
+    private static final int DEFAULT_DAYS = 30;
+
+    private final BookLoanStatsRepository bookLoanStatsRepository;
+    private final DailyLoanStatsRepository dailyLoanStatsRepository;
+    private final LoanStatsCollector loanStatsCollector;
+    private final BookAvailabilityIndex bookAvailabilityIndex;
+
+    public LoanStatsServiceImpl(BookLoanStatsRepository bookLoanStatsRepository,
+                                DailyLoanStatsRepository dailyLoanStatsRepository,
+                                LoanStatsCollector loanStatsCollector,
+                                BookAvailabilityIndex bookAvailabilityIndex) {
+        this.bookLoanStatsRepository = bookLoanStatsRepository;
+        this.dailyLoanStatsRepository = dailyLoanStatsRepository;
+        this.loanStatsCollector = loanStatsCollector;
+        this.bookAvailabilityIndex = bookAvailabilityIndex;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<BookLoanStatsDTO> findTopBooks(int size) {
+        if (size < 1 || size > BookLoanStatsDTO.MAX_SIZE) {
+            throw new BusinessException("Size must be between 1 and " + BookLoanStatsDTO.MAX_SIZE);
+        }
+
+        return bookLoanStatsRepository.findTop(PageRequest.of(0, size));
+    }
+
+    // the open loans come from the availability index, which already tracks them
+    @Transactional(readOnly = true)
+    @Override
+    public LoanStatsDTO findDaily(LocalDate from, LocalDate to) {
+        if (to == null) {
+            to = LocalDate.now();
+        }
+        if (from == null) {
+            from = to.minusDays(DEFAULT_DAYS - 1);
+        }
+
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= LoanStatsDTO.MAX_DAYS) {
+            throw new BusinessException("The period must be between 1 and " + LoanStatsDTO.MAX_DAYS + " days");
+        }
+
+        return LoanStatsDTO.builder()
+                .active(bookAvailabilityIndex.size())
+                .days(dailyLoanStatsRepository.findBetween(from, to))
+                .build();
+    }
+
+    @Override
+    public void flush() {
+        LoanStatsCollector.Snapshot snapshot = loanStatsCollector.beginFlush().orElse(null);
+        if (snapshot == null || snapshot.isEmpty()) {
+            return;
+        }
+
+        snapshot.getLoansByBook().forEach((bookId, loans) -> {
+            if (bookLoanStatsRepository.increment(bookId, loans) == 0) {
+                bookLoanStatsRepository.save(BookLoanStats.builder().bookId(bookId).loans(loans).build());
+            }
+        });
+
+        snapshot.getCountsByDay().forEach((date, counts) -> {
+            if (dailyLoanStatsRepository.increment(date, counts[0], counts[1]) == 0) {
+                dailyLoanStatsRepository.save(DailyLoanStats.builder()
+                        .statsDate(date)
+                        .checkouts(counts[0])
+                        .returns(counts[1])
+                        .build());
+            }
+        });
+    }
+}
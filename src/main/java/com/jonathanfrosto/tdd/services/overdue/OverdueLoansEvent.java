@@ -0,0 +1,16 @@
+package com.jonathanfrosto.tdd.services.overdue;
+
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class OverdueLoansEvent {
+
+    private LocalDate cutoff;
+    private List<LoanDTO> loans;
+}
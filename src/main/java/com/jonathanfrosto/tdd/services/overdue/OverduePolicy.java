@@ -0,0 +1,26 @@
+package com.jonathanfrosto.tdd.services.overdue;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+@Component
+public class OverduePolicy {
+
+    private final Period loanPeriod;
+
+    public OverduePolicy(@Value("${loan.period:14d}") Period loanPeriod) {
+        this.loanPeriod = loanPeriod;
+    }
+
+    // open loans made before the cutoff are overdue on the given day
+    public LocalDate cutoff(LocalDate today) {
+        return today.minus(loanPeriod);
+    }
+
+    public LocalDate cutoff() {
+        return cutoff(LocalDate.now());
+    }
+}
@@ -0,0 +1,25 @@
+package com.jonathanfrosto.tdd.services.overdue;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.LocalDate;
+
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(value = "loan.overdue.scan.enabled", havingValue = "true", matchIfMissing = true)
+public class OverdueScanSchedule {
+
+    private final OverdueScanner overdueScanner;
+
+    public OverdueScanSchedule(OverdueScanner overdueScanner) {
+        this.overdueScanner = overdueScanner;
+    }
+
+    @Scheduled(cron = "${loan.overdue.scan.cron:0 */15 * * * *}")
+    public void scan() {
+        overdueScanner.scan(LocalDate.now());
+    }
+}
@@ -0,0 +1,76 @@
+package com.jonathanfrosto.tdd.services.overdue;
+
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.entities.ScanCheckpoint;
+import com.jonathanfrosto.tdd.repositories.LoanRepository;
+import com.jonathanfrosto.tdd.repositories.ScanCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// every run only reads the open loans whose due date crossed since the previous run, so the cost follows the
+// number of loans that became overdue and not the size of the loan history
+@Slf4j
+@Component
+public class OverdueScanner {
+
+    static final String CHECKPOINT = "overdue-loans";
+
+    private final LoanRepository loanRepository;
+    private final ScanCheckpointRepository checkpointRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OverduePolicy overduePolicy;
+    private final int batchSize;
+
+    public OverdueScanner(LoanRepository loanRepository,
+                          ScanCheckpointRepository checkpointRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          OverduePolicy overduePolicy,
+                          @Value("${loan.overdue.scan.batch-size:1000}") int batchSize) {
+        this.loanRepository = loanRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.eventPublisher = eventPublisher;
+        this.overduePolicy = overduePolicy;
+        this.batchSize = batchSize;
+    }
+
+    @Transactional
+    public long scan(LocalDate today) {
+        LocalDate cutoff = overduePolicy.cutoff(today);
+        ScanCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT)
+                .orElseGet(() -> ScanCheckpoint.builder().name(CHECKPOINT).build());
+
+        LocalDate from = checkpoint.getScannedUntil();
+        if (from != null && !from.isBefore(cutoff)) {
+            return 0;
+        }
+
+        long overdue = 0;
+        KeysetCursor cursor = KeysetCursor.first();
+        List<LoanDTO> batch;
+        do {
+            batch = loanRepository.findOpenBetween(from, cutoff, cursor, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            eventPublisher.publishEvent(new OverdueLoansEvent(cutoff, batch));
+            overdue += batch.size();
+
+            LoanDTO last = batch.get(batch.size() - 1);
+            cursor = KeysetCursor.after(last.getLoanDate(), last.getId());
+        } while (batch.size() == batchSize);
+
+        checkpoint.setScannedUntil(cutoff);
+        checkpointRepository.save(checkpoint);
+
+        log.info("Overdue scan from {} to {} found {} loans", from, cutoff, overdue);
+        return overdue;
+    }
+}
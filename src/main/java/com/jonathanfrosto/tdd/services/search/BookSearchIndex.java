@@ -0,0 +1,434 @@
+package com.jonathanfrosto.tdd.services.search;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.mappers.BookMapper;
+import com.jonathanfrosto.tdd.repositories.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// in-process inverted index over book name and author. A query token matches its own term or, when there is no such
+// term, terms one typo away and, for the last token, terms it is a prefix of. Every token must match and hits are
+// ranked by how well, in which field and on how rare a term they matched
+@Slf4j
+@Component
+public class BookSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final byte NAME = 1;
+    private static final byte AUTHOR = 2;
+
+    private static final double EXACT = 1.0;
+    private static final double PREFIX = 0.6;
+    private static final double TYPO = 0.4;
+
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MIN_TYPO_LENGTH = 4;
+
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final int maxExpansions;
+    private final int fetchSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Terms index = new Terms();
+    // books indexed or removed while a rebuild reads the book table, replayed on the new index before it is swapped
+    // in. A null value is a removed book
+    private Map<Long, BookDTO> pending;
+
+    public BookSearchIndex(BookRepository bookRepository,
+                           BookMapper bookMapper,
+                           @Value("${book.search.max-expansions:20}") int maxExpansions,
+                           @Value("${export.fetch-size:1000}") int fetchSize) {
+        this.bookRepository = bookRepository;
+        this.bookMapper = bookMapper;
+        this.maxExpansions = maxExpansions;
+        this.fetchSize = fetchSize;
+    }
+
+    // searches keep using the current index until the new one is complete
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Terms rebuilt = new Terms();
+        boolean read = false;
+        try (Stream<Book> stream = bookRepository.streamByExample(Example.of(new Book()), fetchSize)) {
+            stream.forEach(book -> rebuilt.put(bookMapper.toDto(book)));
+            read = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (read) {
+                    pending.forEach((id, book) -> {
+                        if (book == null) {
+                            rebuilt.remove(id);
+                        } else {
+                            rebuilt.put(book);
+                        }
+                    });
+                    index = rebuilt;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Book search index built with {} books and {} terms", size(), terms());
+    }
+
+    // applied once the surrounding transaction commits, so a rollback never reaches the index
+    public void index(Collection<Book> saved) {
+        List<BookDTO> dtos = saved.stream().map(bookMapper::toDto).collect(Collectors.toList());
+        afterCommit(() -> dtos.forEach(this::put));
+    }
+
+    public void index(Book saved) {
+        index(Collections.singletonList(saved));
+    }
+
+    public void remove(Long id) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                index.remove(id);
+                if (pending != null) {
+                    pending.put(id, null);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public Slice<BookDTO> search(String query, Pageable pageable) {
+        List<String> tokens = tokenize(query).distinct().collect(Collectors.toList());
+        if (tokens.isEmpty()) {
+            return new SliceImpl<>(Collections.emptyList(), pageable, false);
+        }
+
+        lock.readLock().lock();
+        try {
+            // page and size come from the client, nothing past the indexed books can be a hit
+            if (pageable.getOffset() >= index.books.size()) {
+                return new SliceImpl<>(Collections.emptyList(), pageable, false);
+            }
+
+            long end = pageable.getOffset() + pageable.getPageSize();
+            List<BookDTO> hits = rank(tokens, (int) Math.min(end + 1, index.books.size() + 1L));
+
+            int from = (int) Math.min(pageable.getOffset(), hits.size());
+            int to = (int) Math.min(end, hits.size());
+            return new SliceImpl<>(new ArrayList<>(hits.subList(from, to)), pageable, hits.size() > to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index = new Terms();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int terms() {
+        lock.readLock().lock();
+        try {
+            return index.postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(BookDTO book) {
+        lock.writeLock().lock();
+        try {
+            index.put(book);
+            if (pending != null) {
+                pending.put(book.getId(), book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<BookDTO> rank(List<String> tokens, int limit) {
+        List<List<Match>> matches = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            List<Match> terms = match(tokens.get(i), i == tokens.size() - 1);
+            if (terms.isEmpty()) {
+                return Collections.emptyList();
+            }
+            matches.add(terms);
+        }
+
+        // start from the most selective token and only look up the surviving books in the other ones
+        matches.sort(Comparator.comparingInt(BookSearchIndex::postingsSize));
+
+        Map<Long, Double> scores = new HashMap<>(postingsSize(matches.get(0)) * 4 / 3 + 1);
+        for (Match match : matches.get(0)) {
+            match.docs.forEach((id, field) -> scores.merge(id, match.score(field), Math::max));
+        }
+
+        for (List<Match> terms : matches.subList(1, matches.size())) {
+            Iterator<Map.Entry<Long, Double>> candidates = scores.entrySet().iterator();
+            while (candidates.hasNext()) {
+                Map.Entry<Long, Double> candidate = candidates.next();
+
+                double best = 0;
+                for (Match match : terms) {
+                    Byte field = match.docs.get(candidate.getKey());
+                    if (field != null) {
+                        best = Math.max(best, match.score(field));
+                    }
+                }
+
+                if (best == 0) {
+                    candidates.remove();
+                } else {
+                    candidate.setValue(candidate.getValue() + best);
+                }
+            }
+        }
+
+        return top(scores, limit);
+    }
+
+    // best hits first and lower ids first on ties, a bounded heap instead of sorting every candidate
+    private List<BookDTO> top(Map<Long, Double> scores, int limit) {
+        Comparator<Map.Entry<Long, Double>> ranking = Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+
+        PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(Math.min(limit, scores.size()) + 1, ranking.reversed());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            if (heap.size() < limit) {
+                heap.add(entry);
+            } else if (ranking.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(heap);
+        ranked.sort(ranking);
+
+        List<BookDTO> hits = new ArrayList<>(ranked.size());
+        for (Map.Entry<Long, Double> entry : ranked) {
+            hits.add(index.books.get(entry.getKey()));
+        }
+        return hits;
+    }
+
+    // expansions only kick in without an exact term, a common word would otherwise drag in thousands of postings
+    private List<Match> match(String token, boolean last) {
+        Map<String, Double> terms = new HashMap<>();
+        boolean exact = index.postings.containsKey(token);
+        if (exact) {
+            terms.put(token, EXACT);
+        }
+
+        // the last token may still be being typed
+        if (!exact && last && token.length() >= MIN_PREFIX_LENGTH) {
+            for (String term : index.postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+                if (terms.size() >= maxExpansions) {
+                    break;
+                }
+                terms.put(term, PREFIX);
+            }
+        }
+
+        if (!exact && token.length() >= MIN_TYPO_LENGTH) {
+            for (String key : deletionKeys(token)) {
+                for (String term : index.deletions.getOrDefault(key, Collections.emptySet())) {
+                    if (terms.size() >= maxExpansions) {
+                        break;
+                    }
+                    if (!terms.containsKey(term) && isOneEditAway(token, term)) {
+                        terms.put(term, TYPO);
+                    }
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(terms.size());
+        terms.forEach((term, weight) -> {
+            Map<Long, Byte> docs = index.postings.get(term);
+            // rare terms weigh more than common ones
+            double idf = Math.log(1 + (double) index.books.size() / docs.size());
+            matches.add(new Match(docs, weight * idf));
+        });
+        return matches;
+    }
+
+    private static int postingsSize(List<Match> matches) {
+        int size = 0;
+        for (Match match : matches) {
+            size += match.docs.size();
+        }
+        return size;
+    }
+
+    static Stream<String> tokenize(String text) {
+        if (text == null) {
+            return Stream.empty();
+        }
+
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+
+        return SEPARATORS.splitAsStream(folded).filter(token -> !token.isEmpty());
+    }
+
+    private static Set<String> deletionKeys(String term) {
+        Set<String> keys = new HashSet<>();
+        keys.add(term);
+        if (term.length() >= MIN_TYPO_LENGTH) {
+            for (int i = 0; i < term.length(); i++) {
+                keys.add(term.substring(0, i) + term.substring(i + 1));
+            }
+        }
+        return keys;
+    }
+
+    // one insertion, deletion, substitution or swap of adjacent characters
+    static boolean isOneEditAway(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > 1) {
+            return false;
+        }
+
+        int start = 0;
+        while (start < a.length() && start < b.length() && a.charAt(start) == b.charAt(start)) {
+            start++;
+        }
+
+        int endA = a.length();
+        int endB = b.length();
+        while (endA > start && endB > start && a.charAt(endA - 1) == b.charAt(endB - 1)) {
+            endA--;
+            endB--;
+        }
+
+        int restA = endA - start;
+        int restB = endB - start;
+        if (restA <= 1 && restB <= 1) {
+            return true;
+        }
+        return restA == 2 && restB == 2
+                && a.charAt(start) == b.charAt(start + 1) && a.charAt(start + 1) == b.charAt(start);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static class Terms {
+
+        private final Map<Long, BookDTO> books = new HashMap<>();
+        private final NavigableMap<String, Map<Long, Byte>> postings = new TreeMap<>();
+        // every term and its one-character deletions point back to the term, so a typo is a couple of map lookups
+        private final Map<String, Set<String>> deletions = new HashMap<>();
+
+        void put(BookDTO book) {
+            remove(book.getId());
+            books.put(book.getId(), book);
+
+            Map<String, Byte> fields = new HashMap<>();
+            tokenize(book.getName()).forEach(term -> fields.merge(term, NAME, (a, b) -> (byte) (a | b)));
+            tokenize(book.getAuthor()).forEach(term -> fields.merge(term, AUTHOR, (a, b) -> (byte) (a | b)));
+
+            fields.forEach((term, field) -> postings.computeIfAbsent(term, this::newTerm).put(book.getId(), field));
+        }
+
+        void remove(Long id) {
+            BookDTO previous = books.remove(id);
+            if (previous == null) {
+                return;
+            }
+
+            Stream.concat(tokenize(previous.getName()), tokenize(previous.getAuthor())).distinct().forEach(term -> {
+                Map<Long, Byte> docs = postings.get(term);
+                if (docs != null && docs.remove(id) != null && docs.isEmpty()) {
+                    postings.remove(term);
+                    for (String key : deletionKeys(term)) {
+                        Set<String> terms = deletions.get(key);
+                        terms.remove(term);
+                        if (terms.isEmpty()) {
+                            deletions.remove(key);
+                        }
+                    }
+                }
+            });
+        }
+
+        private Map<Long, Byte> newTerm(String term) {
+            for (String key : deletionKeys(term)) {
+                deletions.computeIfAbsent(key, k -> new HashSet<>()).add(term);
+            }
+            return new HashMap<>();
+        }
+    }
+
+    private static class Match {
+
+        private final Map<Long, Byte> docs;
+        private final double weight;
+
+        Match(Map<Long, Byte> docs, double weight) {
+            this.docs = docs;
+            this.weight = weight;
+        }
+
+        // a name hit weighs twice an author hit
+        double score(byte field) {
+            return (field & NAME) != 0 ? weight * 2 : weight;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.jonathanfrosto.tdd.services.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// loan counters that checkouts and returns bump once they commit and a flush moves into the stats tables. A flush
+// only subtracts what it wrote, so counts that arrive meanwhile or a failed flush lose nothing
+@Component
+public class LoanStatsCollector {
+
+    // a day stays in memory this long after it ended, in case a commit still bumps it
+    private static final int IDLE_DAYS = 2;
+
+    // only the books loaned since the last flush, a flushed book is dropped so a snapshot never walks the catalog
+    private final Map<Long, Long> bookLoans = new ConcurrentHashMap<>();
+    private final Map<LocalDate, DayCounters> days = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    public void recordCheckouts(Collection<Long> bookIds) {
+        List<Long> ids = bookIds.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        afterCommit(() -> {
+            ids.forEach(bookId -> bookLoans.merge(bookId, 1L, Long::sum));
+            day(LocalDate.now()).checkouts.add(ids.size());
+        });
+    }
+
+    public void recordCheckout(Long bookId) {
+        recordCheckouts(Collections.singletonList(bookId));
+    }
+
+    public void recordReturns(long returns) {
+        if (returns > 0) {
+            afterCommit(() -> day(LocalDate.now()).returns.add(returns));
+        }
+    }
+
+    public Snapshot snapshot() {
+        Map<Long, Long> loansByBook = new HashMap<>(bookLoans);
+
+        Map<LocalDate, long[]> countsByDay = new HashMap<>();
+        days.forEach((date, counters) -> {
+            long checkouts = counters.checkouts.sum();
+            long returns = counters.returns.sum();
+            if (checkouts != 0 || returns != 0) {
+                countsByDay.put(date, new long[]{checkouts, returns});
+            }
+        });
+
+        return new Snapshot(loansByBook, countsByDay);
+    }
+
+    // must run inside the flush transaction: the counters only drop once it commits, and until it completes
+    // another flush gets nothing, or it would write the same counts twice
+    public Optional<Snapshot> beginFlush() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("A flush needs an active transaction");
+        }
+        if (!flushing.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+
+        Snapshot snapshot = snapshot();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                flushed(snapshot);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                flushing.set(false);
+            }
+        });
+        return Optional.of(snapshot);
+    }
+
+    private void flushed(Snapshot snapshot) {
+        // atomic with the merges of checkouts, a book loaned meanwhile keeps its new loans
+        snapshot.loansByBook.forEach((bookId, loans) -> bookLoans.computeIfPresent(bookId,
+                (id, count) -> count.equals(loans) ? null : count - loans));
+        snapshot.countsByDay.forEach((date, counts) -> {
+            DayCounters counters = days.get(date);
+            counters.checkouts.add(-counts[0]);
+            counters.returns.add(-counts[1]);
+        });
+
+        LocalDate idle = LocalDate.now().minusDays(IDLE_DAYS);
+        days.entrySet().removeIf(day -> day.getKey().isBefore(idle)
+                && day.getValue().checkouts.sum() == 0 && day.getValue().returns.sum() == 0);
+    }
+
+    int trackedBooks() {
+        return bookLoans.size();
+    }
+
+    private DayCounters day(LocalDate date) {
+        return days.computeIfAbsent(date, key -> new DayCounters());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static class DayCounters {
+        private final LongAdder checkouts = new LongAdder();
+        private final LongAdder returns = new LongAdder();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+        private final Map<Long, Long> loansByBook;
+        // checkouts and returns of each day
+        private final Map<LocalDate, long[]> countsByDay;
+
+        public boolean isEmpty() {
+            return loansByBook.isEmpty() && countsByDay.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.jonathanfrosto.tdd.services.stats;
+
+import com.jonathanfrosto.tdd.services.LoanStatsService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PreDestroy;
+
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(value = "stats.flush.enabled", havingValue = "true", matchIfMissing = true)
+public class LoanStatsSchedule {
+
+    private final LoanStatsService loanStatsService;
+
+    public LoanStatsSchedule(LoanStatsService loanStatsService) {
+        this.loanStatsService = loanStatsService;
+    }
+
+    @Scheduled(cron = "${stats.flush.cron:*/10 * * * * *}")
+    public void flush() {
+        loanStatsService.flush();
+    }
+
+    // runs before the data source closes, this bean depends on it
+    @PreDestroy
+    public void flushOnShutdown() {
+        loanStatsService.flush();
+    }
+}
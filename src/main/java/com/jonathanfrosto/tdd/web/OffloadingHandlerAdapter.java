@@ -0,0 +1,81 @@
+package com.jonathanfrosto.tdd.web;
+
+import com.jonathanfrosto.tdd.TddApplication;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.ServletResponse;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+
+// resolves the arguments on the Tomcat thread and returns the controller call as a Callable, so Spring MVC runs it
+// on the async executor and the Tomcat thread goes back to the pool while the controller waits on the database
+class OffloadingHandlerAdapter extends RequestMappingHandlerAdapter {
+
+    private static final List<Class<?>> ASYNC_TYPES = List.of(Callable.class, DeferredResult.class,
+            CompletionStage.class, ListenableFuture.class, WebAsyncTask.class,
+            StreamingResponseBody.class, ResponseBodyEmitter.class);
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        if (!isOffloaded(handlerMethod)) {
+            return super.createInvocableHandlerMethod(handlerMethod);
+        }
+        return new OffloadedHandlerMethod(handlerMethod);
+    }
+
+    private boolean isOffloaded(HandlerMethod handlerMethod) {
+        if (!handlerMethod.getBeanType().getPackageName().startsWith(TddApplication.class.getPackageName())) {
+            return false;
+        }
+
+        MethodParameter returnType = handlerMethod.getReturnType();
+        Class<?> type = returnType.getParameterType();
+        if (ResponseEntity.class.isAssignableFrom(type)) {
+            type = ResolvableType.forMethodParameter(returnType).getGeneric(0).resolve(Object.class);
+        }
+
+        for (Class<?> asyncType : ASYNC_TYPES) {
+            if (asyncType.isAssignableFrom(type)) {
+                return false;
+            }
+        }
+
+        // handlers that write the response themselves stay on the container thread
+        for (MethodParameter parameter : handlerMethod.getMethodParameters()) {
+            Class<?> parameterType = parameter.getParameterType();
+            if (ServletResponse.class.isAssignableFrom(parameterType) || OutputStream.class.isAssignableFrom(parameterType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class OffloadedHandlerMethod extends ServletInvocableHandlerMethod {
+
+        OffloadedHandlerMethod(HandlerMethod handlerMethod) {
+            super(handlerMethod);
+        }
+
+        @Override
+        public Object invokeForRequest(NativeWebRequest request,
+                                       ModelAndViewContainer mavContainer,
+                                       Object... providedArgs) throws Exception {
+            Object[] args = getMethodArgumentValues(request, mavContainer, providedArgs);
+            return (Callable<Object>) () -> doInvoke(args);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.jonathanfrosto.tdd.web;
+
+import com.jonathanfrosto.tdd.metrics.StatementCounter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "request-offload.enabled", havingValue = "true")
+public class RequestOffloadConfiguration implements WebMvcConfigurer {
+
+    private final int threads;
+    private final int queueCapacity;
+    private final Duration timeout;
+
+    public RequestOffloadConfiguration(@Value("${request-offload.threads:16}") int threads,
+                                       @Value("${request-offload.queue-capacity:1000}") int queueCapacity,
+                                       @Value("${request-offload.timeout:30s}") Duration timeout) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.timeout = timeout;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor requestOffloadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("request-offload-");
+        executor.setTaskDecorator(StatementCounter::propagate);
+        return executor;
+    }
+
+    @Bean
+    public MeterBinder requestOffloadExecutorMetrics() {
+        return registry -> new ExecutorServiceMetrics(requestOffloadExecutor().getThreadPoolExecutor(),
+                "request-offload", Tags.empty()).bindTo(registry);
+    }
+
+    @Bean
+    public WebMvcRegistrations requestOffloadRegistrations() {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                return new OffloadingHandlerAdapter();
+            }
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(requestOffloadExecutor())
+                .setDefaultTimeout(timeout.toMillis());
+    }
+}
@@ -0,0 +1,29 @@
+create sequence book_seq start with 1 increment by 50;
+create sequence loan_seq start with 1 increment by 50;
+
+create table book (
+    id     bigint not null,
+    name   varchar(255),
+    isbn   varchar(255),
+    author varchar(255),
+    constraint pk_book primary key (id)
+);
+
+create unique index ux_book_isbn on book (isbn);
+
+create table loan (
+    id        bigint  not null,
+    customer  varchar(255),
+    id_book   bigint,
+    loan_date date,
+    returned  boolean not null,
+    constraint pk_loan primary key (id),
+    constraint fk_loan_book foreign key (id_book) references book (id)
+);
+
+-- active loan for a book (existsByBookAndReturnedFalse)
+create index ix_loan_book_returned on loan (id_book, returned);
+
+-- loans of a book and loans of a customer, both paged by loan date
+create index ix_loan_book_date on loan (id_book, loan_date, id);
+create index ix_loan_customer_date on loan (customer, loan_date, id);
@@ -0,0 +1,5 @@
+-- holds id_book only while the loan is open, so the unique index allows a single active loan per book
+-- (on PostgreSQL this would be a partial unique index on id_book where not returned)
+alter table loan add column active_book_id bigint as (case when returned then null else id_book end);
+
+create unique index ux_loan_active_book on loan (active_book_id);
@@ -0,0 +1,9 @@
+-- open loans by loan date, used by the overdue listing and the incremental overdue scan
+create index ix_loan_open_date on loan (returned, loan_date, id);
+
+-- how far each incremental scan got, so the next run only reads loans that became due since
+create table scan_checkpoint (
+    name          varchar(64) not null,
+    scanned_until date        not null,
+    constraint pk_scan_checkpoint primary key (name)
+);
@@ -0,0 +1,2 @@
+-- optimistic locking and the ETag of GET /book/{id}, existing books start at version 0
+alter table book add column version bigint default 0 not null;
@@ -0,0 +1,3 @@
+-- a customer's open or returned loans by loan date (GET /customers/{customer}/loans?returned=),
+-- ix_loan_customer_date keeps serving the unfiltered history
+create index ix_loan_customer_returned_date on loan (customer, returned, loan_date, id);
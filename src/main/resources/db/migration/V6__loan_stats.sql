@@ -0,0 +1,23 @@
+-- loan counters kept in memory by LoanStatsCollector and added here on every stats flush
+create table book_loan_stats (
+    id_book bigint not null,
+    loans   bigint not null,
+    constraint pk_book_loan_stats primary key (id_book)
+);
+
+-- the most loaned books are the first rows of this index
+create index ix_book_loan_stats_loans on book_loan_stats (loans desc, id_book);
+
+create table daily_loan_stats (
+    stats_date date   not null,
+    checkouts  bigint not null,
+    returns    bigint not null,
+    constraint pk_daily_loan_stats primary key (stats_date)
+);
+
+insert into book_loan_stats (id_book, loans)
+select id_book, count(*) from loan where id_book is not null group by id_book;
+
+-- loans keep no return date, so the days before this migration only have their checkouts
+insert into daily_loan_stats (stats_date, checkouts, returns)
+select loan_date, count(*), 0 from loan where loan_date is not null group by loan_date;
@@ -0,0 +1,228 @@
+package com.jonathanfrosto.tdd.reactive.controllers;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.reactive.ReactiveTddApplication;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", ReactiveTddApplication.PROFILE})
+@SpringBootTest(classes = ReactiveTddApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+class ReactiveBookControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    DatabaseClient databaseClient;
+
+    @Test
+    @DisplayName("Should create and find a book")
+    void createAndFind() {
+        // Given
+        BookDTO book = book("reactive-1");
+
+        // When
+        BookDTO created = webTestClient.post().uri("/book")
+                .bodyValue(book)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BookDTO.class)
+                .returnResult().getResponseBody();
+
+        // Then
+        assertThat(created).isNotNull();
+        assertThat(created.getId()).isNotNull();
+
+        webTestClient.get().uri("/book/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.isbn").isEqualTo("reactive-1");
+    }
+
+    @Test
+    @DisplayName("Should reject a duplicated isbn with the servlet error body")
+    void duplicatedIsbn() {
+        // Given
+        webTestClient.post().uri("/book").bodyValue(book("reactive-2")).exchange().expectStatus().isOk();
+
+        // When / Then
+        webTestClient.post().uri("/book")
+                .bodyValue(book("reactive-2"))
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Duplicated isbn");
+    }
+
+    @Test
+    @DisplayName("Should report bean validation errors by field")
+    void invalidBook() {
+        // When / Then
+        webTestClient.post().uri("/book")
+                .bodyValue(BookDTO.builder().isbn("reactive-3").build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors.length()").isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should return 404 for an unknown book")
+    void unknownBook() {
+        // When / Then
+        webTestClient.get().uri("/book/{id}", Long.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Book not found");
+    }
+
+    @Test
+    @DisplayName("Should bump the book version the servlet ETags are built from")
+    void updateBumpsVersion() {
+        // Given
+        BookDTO created = webTestClient.post().uri("/book")
+                .bodyValue(book("reactive-4"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BookDTO.class)
+                .returnResult().getResponseBody();
+        assertThat(created).isNotNull();
+        created.setName("Renamed");
+
+        // When
+        webTestClient.put().uri("/book/{id}", created.getId())
+                .bodyValue(created)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Renamed");
+
+        // Then
+        Long version = databaseClient.sql("select version from book where id = :id")
+                .bind("id", created.getId())
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .block();
+        assertThat(version).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should reject an update of a version that was changed meanwhile")
+    void updateStaleVersion() {
+        // Given
+        BookDTO created = webTestClient.post().uri("/book")
+                .bodyValue(book("reactive-6"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BookDTO.class)
+                .returnResult().getResponseBody();
+        assertThat(created).isNotNull();
+        webTestClient.put().uri("/book/{id}", created.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(created)
+                .exchange()
+                .expectStatus().isOk();
+
+        // When / Then
+        webTestClient.put().uri("/book/{id}", created.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(created)
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Book was changed by another request");
+    }
+
+    @Test
+    @DisplayName("Should reject an update to the isbn of another book")
+    void updateDuplicatedIsbn() {
+        // Given
+        webTestClient.post().uri("/book").bodyValue(book("reactive-7")).exchange().expectStatus().isOk();
+        BookDTO created = webTestClient.post().uri("/book")
+                .bodyValue(book("reactive-8"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BookDTO.class)
+                .returnResult().getResponseBody();
+        assertThat(created).isNotNull();
+        created.setIsbn("reactive-7");
+
+        // When / Then
+        webTestClient.put().uri("/book/{id}", created.getId())
+                .bodyValue(created)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Duplicated isbn");
+    }
+
+    @Test
+    @DisplayName("Should reject an update whose body is for another book")
+    void updateOtherBook() {
+        // Given
+        BookDTO created = webTestClient.post().uri("/book")
+                .bodyValue(book("reactive-5"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BookDTO.class)
+                .returnResult().getResponseBody();
+        assertThat(created).isNotNull();
+
+        // When / Then
+        webTestClient.put().uri("/book/{id}", created.getId() + 1)
+                .bodyValue(created)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Book id does not match the path");
+    }
+
+    @Test
+    @DisplayName("Should stream search results as ndjson")
+    void streamSearch() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            webTestClient.post().uri("/book")
+                    .bodyValue(BookDTO.builder().name("Stream " + i).author("Streaming Author").isbn("stream-" + i).build())
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+
+        // When
+        var books = webTestClient.get().uri("/book?author=Streaming Author")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BookDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        // Then
+        assertThat(books).extracting(BookDTO::getIsbn).containsExactly("stream-0", "stream-1", "stream-2");
+    }
+
+    private BookDTO book(String isbn) {
+        return BookDTO.builder()
+                .name("A alcateia")
+                .author("Jonathan Anthony")
+                .isbn(isbn)
+                .build();
+    }
+}
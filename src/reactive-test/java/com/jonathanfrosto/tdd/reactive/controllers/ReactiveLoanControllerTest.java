@@ -0,0 +1,123 @@
+package com.jonathanfrosto.tdd.reactive.controllers;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.reactive.ReactiveTddApplication;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", ReactiveTddApplication.PROFILE})
+@SpringBootTest(classes = ReactiveTddApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+class ReactiveLoanControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Test
+    @DisplayName("Should loan a book only once until it is returned")
+    void loanAndReturn() {
+        // Given
+        BookDTO book = webTestClient.post().uri("/book")
+                .bodyValue(BookDTO.builder().name("A alcateia").author("Jonathan Anthony").isbn("reactive-loan-1").build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BookDTO.class)
+                .returnResult().getResponseBody();
+        assertThat(book).isNotNull();
+
+        // When
+        LoanDTO loan = webTestClient.post().uri("/loans")
+                .bodyValue(LoanDTO.builder().isbn("reactive-loan-1").customer("Fulano").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(LoanDTO.class)
+                .returnResult().getResponseBody();
+
+        // Then
+        assertThat(loan).isNotNull();
+        assertThat(loan.getId()).isNotNull();
+        assertThat(loan.getReturned()).isFalse();
+
+        webTestClient.post().uri("/loans")
+                .bodyValue(LoanDTO.builder().isbn("reactive-loan-1").customer("Ciclano").build())
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Book already loaned");
+
+        webTestClient.patch().uri("/loans/{id}", loan.getId()).exchange().expectStatus().isOk();
+
+        webTestClient.post().uri("/loans")
+                .bodyValue(LoanDTO.builder().isbn("reactive-loan-1").customer("Ciclano").build())
+                .exchange()
+                .expectStatus().isCreated();
+
+        webTestClient.get().uri("/book/{id}/loans", book.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(LoanDTO.class)
+                .hasSize(2);
+
+        webTestClient.get().uri("/loans?customer=Ciclano&isbn=reactive-loan-1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].returned").isEqualTo(false);
+    }
+
+    @Test
+    @DisplayName("Should accept a repeated return and reject an unknown loan")
+    void repeatedReturn() {
+        // Given
+        webTestClient.post().uri("/book")
+                .bodyValue(BookDTO.builder().name("A alcateia").author("Jonathan Anthony").isbn("reactive-loan-2").build())
+                .exchange()
+                .expectStatus().isOk();
+        LoanDTO loan = webTestClient.post().uri("/loans")
+                .bodyValue(LoanDTO.builder().isbn("reactive-loan-2").customer("Fulano").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(LoanDTO.class)
+                .returnResult().getResponseBody();
+        assertThat(loan).isNotNull();
+
+        // When / Then
+        webTestClient.patch().uri("/loans/{id}", loan.getId()).exchange().expectStatus().isOk();
+        webTestClient.patch().uri("/loans/{id}", loan.getId()).exchange().expectStatus().isOk();
+
+        webTestClient.get().uri("/loans?customer=Fulano&isbn=reactive-loan-2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].returned").isEqualTo(true);
+
+        webTestClient.patch().uri("/loans/{id}", Long.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Loan not found");
+    }
+
+    @Test
+    @DisplayName("Should return 404 when loaning an unknown book")
+    void unknownBook() {
+        // When / Then
+        webTestClient.post().uri("/loans")
+                .bodyValue(LoanDTO.builder().isbn("reactive-missing").customer("Fulano").build())
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Book not found");
+    }
+}
@@ -0,0 +1,75 @@
+package com.jonathanfrosto.tdd.reactive.controllers;
+
+import com.jonathanfrosto.tdd.controllers.BookController;
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.reactive.ReactiveTddApplication;
+import com.jonathanfrosto.tdd.reactive.services.ReactiveBookService;
+import com.jonathanfrosto.tdd.reactive.services.ReactiveLoanService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+@Profile(ReactiveTddApplication.PROFILE)
+@RestController
+@RequestMapping("book")
+public class ReactiveBookController {
+
+    private final ReactiveBookService bookService;
+    private final ReactiveLoanService loanService;
+
+    public ReactiveBookController(ReactiveBookService bookService,
+                                  ReactiveLoanService loanService) {
+        this.bookService = bookService;
+        this.loanService = loanService;
+    }
+
+    @PostMapping
+    public Mono<BookDTO> createBook(@RequestBody @Valid BookDTO bookDTO) {
+        return bookService.save(bookDTO);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<BookDTO> findBookById(@PathVariable("id") Long id) {
+        return bookService.getById(id);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> delete(@PathVariable("id") Long id) {
+        return bookService.delete(id);
+    }
+
+    // the version travels in If-Match and ETag like on the servlet edition
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<BookDTO>> update(@PathVariable("id") Long id,
+                                                @RequestBody BookDTO bookDTO,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (bookDTO.getId() != null && !bookDTO.getId().equals(id)) {
+            return Mono.error(new BusinessException("Book id does not match the path"));
+        }
+        bookDTO.setId(id);
+        bookDTO.setVersion(BookController.expectedVersion(ifMatch));
+        return bookService.update(bookDTO)
+                .map(updated -> ResponseEntity.ok()
+                        .eTag(String.valueOf(updated.getVersion()))
+                        .body(updated));
+    }
+
+    @GetMapping
+    public Flux<BookDTO> find(BookDTO bookDTO) {
+        return bookService.find(bookDTO);
+    }
+
+    @GetMapping("/{id}/loans")
+    public Flux<LoanDTO> findLoansByBook(@PathVariable("id") Long id) {
+        return loanService.findByBook(id);
+    }
+}
@@ -0,0 +1,41 @@
+package com.jonathanfrosto.tdd.reactive.controllers;
+
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.reactive.ReactiveTddApplication;
+import com.jonathanfrosto.tdd.reactive.services.ReactiveLoanService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+@Profile(ReactiveTddApplication.PROFILE)
+@RestController
+@RequestMapping("loans")
+public class ReactiveLoanController {
+
+    private final ReactiveLoanService loanService;
+
+    public ReactiveLoanController(ReactiveLoanService loanService) {
+        this.loanService = loanService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<LoanDTO> saveLoan(@RequestBody @Valid LoanDTO body) {
+        return loanService.save(body);
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<Void> returnBookFromLoan(@PathVariable Long id) {
+        return loanService.giveBackBook(id);
+    }
+
+    @GetMapping
+    public Flux<LoanDTO> find(LoanFilterDTO filterDTO) {
+        return loanService.find(filterDTO);
+    }
+}
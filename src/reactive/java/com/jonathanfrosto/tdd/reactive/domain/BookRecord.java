@@ -0,0 +1,30 @@
+package com.jonathanfrosto.tdd.reactive.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("book")
+public class BookRecord {
+
+    @Id
+    private Long id;
+
+    private String name;
+
+    private String isbn;
+
+    private String author;
+
+    // bumped on every update so the servlet application's ETags see reactive writes
+    @Version
+    private Long version;
+}
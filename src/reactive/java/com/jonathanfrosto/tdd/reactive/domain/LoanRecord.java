@@ -0,0 +1,31 @@
+package com.jonathanfrosto.tdd.reactive.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("loan")
+public class LoanRecord {
+
+    @Id
+    private Long id;
+
+    private String customer;
+
+    @Column("id_book")
+    private Long bookId;
+
+    private LocalDate loanDate;
+
+    private boolean returned;
+}
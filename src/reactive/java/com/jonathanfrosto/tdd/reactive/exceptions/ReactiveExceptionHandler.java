@@ -0,0 +1,32 @@
+package com.jonathanfrosto.tdd.reactive.exceptions;
+
+import com.jonathanfrosto.tdd.exceptions.ApiError;
+import com.jonathanfrosto.tdd.exceptions.GlobalExceptionHandler;
+import com.jonathanfrosto.tdd.reactive.ReactiveTddApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import java.util.List;
+import java.util.Map;
+
+// WebFlux reports @Valid failures as WebExchangeBindException, everything else is handled by the inherited handlers
+@Profile(ReactiveTddApplication.PROFILE)
+@RestControllerAdvice
+public class ReactiveExceptionHandler extends GlobalExceptionHandler {
+
+    public ReactiveExceptionHandler(ObjectProvider<MeterRegistry> meterRegistry) {
+        super(meterRegistry);
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(WebExchangeBindException.class)
+    public Map<String, List<ApiError>> bindValidation(WebExchangeBindException e) {
+        return fieldErrors(e, e);
+    }
+}
@@ -0,0 +1,12 @@
+package com.jonathanfrosto.tdd.reactive.repositories;
+
+import com.jonathanfrosto.tdd.reactive.domain.BookRecord;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveBookRepository extends ReactiveCrudRepository<BookRecord, Long>, ReactiveBookRepositoryCustom {
+
+    Mono<BookRecord> findByIsbn(String isbn);
+
+    Mono<Boolean> existsByIsbn(String isbn);
+}
@@ -0,0 +1,9 @@
+package com.jonathanfrosto.tdd.reactive.repositories;
+
+import com.jonathanfrosto.tdd.reactive.domain.BookRecord;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveBookRepositoryCustom {
+
+    Flux<BookRecord> findByExample(BookRecord probe);
+}
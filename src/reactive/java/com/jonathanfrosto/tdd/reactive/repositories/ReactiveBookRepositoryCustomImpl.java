@@ -0,0 +1,39 @@
+package com.jonathanfrosto.tdd.reactive.repositories;
+
+import com.jonathanfrosto.tdd.reactive.domain.BookRecord;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import reactor.core.publisher.Flux;
+
+public class ReactiveBookRepositoryCustomImpl implements ReactiveBookRepositoryCustom {
+
+    private final R2dbcEntityTemplate template;
+
+    public ReactiveBookRepositoryCustomImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Flux<BookRecord> findByExample(BookRecord probe) {
+        Criteria criteria = Criteria.empty();
+
+        if (probe.getId() != null) {
+            criteria = criteria.and("id").is(probe.getId());
+        }
+        if (probe.getName() != null) {
+            criteria = criteria.and("name").is(probe.getName());
+        }
+        if (probe.getIsbn() != null) {
+            criteria = criteria.and("isbn").is(probe.getIsbn());
+        }
+        if (probe.getAuthor() != null) {
+            criteria = criteria.and("author").is(probe.getAuthor());
+        }
+
+        return template.select(BookRecord.class)
+                .matching(Query.query(criteria).sort(Sort.by("id")))
+                .all();
+    }
+}
@@ -0,0 +1,14 @@
+package com.jonathanfrosto.tdd.reactive.repositories;
+
+import com.jonathanfrosto.tdd.reactive.domain.LoanRecord;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveLoanRepository extends ReactiveCrudRepository<LoanRecord, Long>, ReactiveLoanRepositoryCustom {
+
+    @Modifying
+    @Query("update loan set returned = true where id = :id and returned = false")
+    Mono<Integer> markReturned(Long id);
+}
@@ -0,0 +1,12 @@
+package com.jonathanfrosto.tdd.reactive.repositories;
+
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveLoanRepositoryCustom {
+
+    Flux<LoanDTO> findByFilter(LoanFilterDTO filter);
+
+    Flux<LoanDTO> findByBookId(Long bookId);
+}
@@ -0,0 +1,66 @@
+package com.jonathanfrosto.tdd.reactive.repositories;
+
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import io.r2dbc.spi.Row;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// same projection and ordering as LoanRepositoryCustomImpl, so the loan date indexes serve both stacks
+public class ReactiveLoanRepositoryCustomImpl implements ReactiveLoanRepositoryCustom {
+
+    private static final String SELECT = "select l.id, b.isbn, l.customer, l.loan_date, l.returned " +
+            "from loan l left join book b on b.id = l.id_book";
+    private static final String ORDER_BY = " order by l.loan_date, l.id";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveLoanRepositoryCustomImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<LoanDTO> findByFilter(LoanFilterDTO filter) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        StringBuilder where = new StringBuilder();
+
+        if (filter.getIsbn() != null) {
+            where.append(" and b.isbn = :isbn");
+            parameters.put("isbn", filter.getIsbn());
+        }
+        if (filter.getCustomer() != null) {
+            where.append(" and l.customer = :customer");
+            parameters.put("customer", filter.getCustomer());
+        }
+
+        String sql = SELECT + (where.length() == 0 ? "" : " where" + where.substring(4)) + ORDER_BY;
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec.map((row, metadata) -> toDto(row)).all();
+    }
+
+    @Override
+    public Flux<LoanDTO> findByBookId(Long bookId) {
+        return databaseClient.sql(SELECT + " where l.id_book = :bookId" + ORDER_BY)
+                .bind("bookId", bookId)
+                .map((row, metadata) -> toDto(row))
+                .all();
+    }
+
+    private static LoanDTO toDto(Row row) {
+        return LoanDTO.builder()
+                .id(row.get("id", Long.class))
+                .isbn(row.get("isbn", String.class))
+                .customer(row.get("customer", String.class))
+                .loanDate(row.get("loan_date", LocalDate.class))
+                .returned(row.get("returned", Boolean.class))
+                .build();
+    }
+}
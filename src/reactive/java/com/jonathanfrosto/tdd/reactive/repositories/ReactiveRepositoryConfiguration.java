@@ -0,0 +1,44 @@
+package com.jonathanfrosto.tdd.reactive.repositories;
+
+import com.jonathanfrosto.tdd.reactive.ReactiveTddApplication;
+import com.jonathanfrosto.tdd.reactive.domain.BookRecord;
+import com.jonathanfrosto.tdd.reactive.domain.LoanRecord;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+// ids come from the same sequences Hibernate uses. Hibernate's pooled-lo optimizer claims the block starting at the
+// value it reads, so taking a single value per insert here never overlaps with the servlet application
+@Profile(ReactiveTddApplication.PROFILE)
+@Configuration
+public class ReactiveRepositoryConfiguration {
+
+    @Bean
+    public BeforeConvertCallback<BookRecord> bookIdCallback(DatabaseClient databaseClient) {
+        return (book, table) -> book.getId() != null
+                ? Mono.just(book)
+                : nextValue(databaseClient, "book_seq").map(id -> {
+                    book.setId(id);
+                    return book;
+                });
+    }
+
+    @Bean
+    public BeforeConvertCallback<LoanRecord> loanIdCallback(DatabaseClient databaseClient) {
+        return (loan, table) -> loan.getId() != null
+                ? Mono.just(loan)
+                : nextValue(databaseClient, "loan_seq").map(id -> {
+                    loan.setId(id);
+                    return loan;
+                });
+    }
+
+    private static Mono<Long> nextValue(DatabaseClient databaseClient, String sequence) {
+        return databaseClient.sql("select next value for " + sequence)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+}
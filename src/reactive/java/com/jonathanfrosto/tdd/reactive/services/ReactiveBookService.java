@@ -0,0 +1,18 @@
+package com.jonathanfrosto.tdd.reactive.services;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveBookService {
+
+    Mono<BookDTO> save(BookDTO bookDTO);
+
+    Mono<BookDTO> getById(Long id);
+
+    Mono<Void> delete(Long id);
+
+    Mono<BookDTO> update(BookDTO toUpdate);
+
+    Flux<BookDTO> find(BookDTO bookDTO);
+}
@@ -0,0 +1,17 @@
+package com.jonathanfrosto.tdd.reactive.services;
+
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveLoanService {
+
+    Mono<LoanDTO> save(LoanDTO loan);
+
+    Mono<Void> giveBackBook(Long id);
+
+    Flux<LoanDTO> find(LoanFilterDTO loanFilterDTO);
+
+    Flux<LoanDTO> findByBook(Long id);
+}
@@ -0,0 +1,107 @@
+package com.jonathanfrosto.tdd.reactive.services.impl;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.reactive.ReactiveTddApplication;
+import com.jonathanfrosto.tdd.reactive.domain.BookRecord;
+import com.jonathanfrosto.tdd.reactive.repositories.ReactiveBookRepository;
+import com.jonathanfrosto.tdd.reactive.services.ReactiveBookService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static com.jonathanfrosto.tdd.services.impl.BookServiceImpl.BOOK_CHANGED;
+import static com.jonathanfrosto.tdd.services.impl.BookServiceImpl.BOOK_NOT_FOUND;
+
+@Transactional
+@Profile(ReactiveTddApplication.PROFILE)
+@Service
+public class ReactiveBookServiceImpl implements ReactiveBookService {
+
+    private final ReactiveBookRepository bookRepository;
+
+    public ReactiveBookServiceImpl(ReactiveBookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public Mono<BookDTO> save(BookDTO bookDTO) {
+        return bookRepository.existsByIsbn(bookDTO.getIsbn())
+                .flatMap(exists -> exists
+                        ? Mono.<BookRecord>error(new BusinessException("Duplicated isbn", 409))
+                        : bookRepository.save(toRecord(bookDTO)))
+                .onErrorMap(DataIntegrityViolationException.class, e -> new BusinessException("Duplicated isbn", 409))
+                .map(ReactiveBookServiceImpl::toDto);
+    }
+
+    @Override
+    public Mono<BookDTO> getById(Long id) {
+        return findRecord(id).map(ReactiveBookServiceImpl::toDto);
+    }
+
+    @Override
+    public Mono<Void> delete(Long id) {
+        if (id == null) {
+            return Mono.error(new IllegalArgumentException("Book id can't be null"));
+        }
+
+        return findRecord(id).flatMap(bookRepository::delete);
+    }
+
+    @Override
+    public Mono<BookDTO> update(BookDTO bookDTO) {
+        if (bookDTO == null || bookDTO.getId() == null) {
+            return Mono.error(new IllegalArgumentException("Book id can't be null"));
+        }
+
+        return findRecord(bookDTO.getId())
+                .flatMap(record -> {
+                    // a version on the request is the one the client last read
+                    if (bookDTO.getVersion() != null && !bookDTO.getVersion().equals(record.getVersion())) {
+                        return Mono.<BookRecord>error(new BusinessException(BOOK_CHANGED, 412));
+                    }
+
+                    record.setAuthor(bookDTO.getAuthor());
+                    record.setName(bookDTO.getName());
+                    record.setIsbn(bookDTO.getIsbn());
+                    return bookRepository.save(record);
+                })
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new BusinessException(BOOK_CHANGED, bookDTO.getVersion() == null ? 409 : 412))
+                .onErrorMap(DataIntegrityViolationException.class, e -> new BusinessException("Duplicated isbn", 409))
+                .map(ReactiveBookServiceImpl::toDto);
+    }
+
+    @Override
+    public Flux<BookDTO> find(BookDTO bookDTO) {
+        return bookRepository.findByExample(toRecord(bookDTO)).map(ReactiveBookServiceImpl::toDto);
+    }
+
+    private Mono<BookRecord> findRecord(Long id) {
+        return bookRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new BusinessException(BOOK_NOT_FOUND, 404)));
+    }
+
+    private static BookRecord toRecord(BookDTO dto) {
+        return BookRecord.builder()
+                .id(dto.getId())
+                .name(dto.getName())
+                .isbn(dto.getIsbn())
+                .author(dto.getAuthor())
+                .build();
+    }
+
+    private static BookDTO toDto(BookRecord record) {
+        return BookDTO.builder()
+                .id(record.getId())
+                .name(record.getName())
+                .isbn(record.getIsbn())
+                .author(record.getAuthor())
+                .version(record.getVersion())
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.jonathanfrosto.tdd.reactive.services.impl;
+
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.reactive.ReactiveTddApplication;
+import com.jonathanfrosto.tdd.reactive.domain.LoanRecord;
+import com.jonathanfrosto.tdd.reactive.repositories.ReactiveBookRepository;
+import com.jonathanfrosto.tdd.reactive.repositories.ReactiveLoanRepository;
+import com.jonathanfrosto.tdd.reactive.services.ReactiveLoanService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+@Transactional
+@Profile(ReactiveTddApplication.PROFILE)
+@Service
+public class ReactiveLoanServiceImpl implements ReactiveLoanService {
+
+    private static final String ACTIVE_LOAN_CONSTRAINT = "ux_loan_active_book";
+
+    private final ReactiveLoanRepository loanRepository;
+    private final ReactiveBookRepository bookRepository;
+
+    public ReactiveLoanServiceImpl(ReactiveLoanRepository loanRepository,
+                                   ReactiveBookRepository bookRepository) {
+        this.loanRepository = loanRepository;
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public Mono<LoanDTO> save(LoanDTO loan) {
+        return bookRepository.findByIsbn(loan.getIsbn())
+                .switchIfEmpty(Mono.error(() -> new BusinessException("Book not found", 404)))
+                .flatMap(book -> loanRepository.save(LoanRecord.builder()
+                        .customer(loan.getCustomer())
+                        .bookId(book.getId())
+                        .loanDate(LocalDate.now())
+                        .returned(false)
+                        .build()))
+                .onErrorMap(ReactiveLoanServiceImpl::isActiveLoanViolation,
+                        e -> new BusinessException("Book already loaned", 409))
+                .map(saved -> LoanDTO.builder()
+                        .id(saved.getId())
+                        .isbn(loan.getIsbn())
+                        .customer(saved.getCustomer())
+                        .loanDate(saved.getLoanDate())
+                        .returned(saved.isReturned())
+                        .build());
+    }
+
+    private static boolean isActiveLoanViolation(Throwable e) {
+        return e instanceof DataIntegrityViolationException
+                && e.getMessage() != null
+                && e.getMessage().toLowerCase().contains(ACTIVE_LOAN_CONSTRAINT);
+    }
+
+    @Override
+    public Mono<Void> giveBackBook(Long id) {
+        // same conditional update as the servlet edition, a repeated or concurrent return changes nothing
+        return loanRepository.markReturned(id)
+                .filter(updated -> updated == 0)
+                .flatMap(updated -> loanRepository.existsById(id))
+                .filter(exists -> !exists)
+                .flatMap(exists -> Mono.<Void>error(new BusinessException("Loan not found", 404)));
+    }
+
+    @Override
+    public Flux<LoanDTO> find(LoanFilterDTO loanFilterDTO) {
+        return loanRepository.findByFilter(loanFilterDTO);
+    }
+
+    @Override
+    public Flux<LoanDTO> findByBook(Long id) {
+        return loanRepository.findByBookId(id);
+    }
+}
@@ -0,0 +1,17 @@
+package com.jonathanfrosto.tdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+// the slice tests build their own beans, only this one boots the whole application
+@ActiveProfiles("test")
+@SpringBootTest
+class TddApplicationTests {
+
+    @Test
+    @DisplayName("Should start the application context")
+    void contextLoads() {
+    }
+}
@@ -1,6 +1,7 @@
 package com.jonathanfrosto.tdd;
 
-import org.modelmapper.ModelMapper;
+import com.jonathanfrosto.tdd.domain.mappers.BookMapper;
+import com.jonathanfrosto.tdd.domain.mappers.LoanMapper;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 
@@ -8,7 +9,12 @@ import org.springframework.context.annotation.Bean;
 public class TestConfig {
 
     @Bean
-    ModelMapper modelMapper() {
-        return new ModelMapper();
+    BookMapper bookMapper() {
+        return new BookMapper();
+    }
+
+    @Bean
+    LoanMapper loanMapper() {
+        return new LoanMapper();
     }
 }
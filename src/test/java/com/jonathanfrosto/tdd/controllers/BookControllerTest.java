@@ -1,9 +1,17 @@
 package com.jonathanfrosto.tdd.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jonathanfrosto.tdd.domain.dto.BookAvailabilityDTO;
 import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookImportResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookLookupResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.ExportFormat;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
 import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.services.BookImportService;
 import com.jonathanfrosto.tdd.services.BookService;
+import com.jonathanfrosto.tdd.services.ExportService;
 import com.jonathanfrosto.tdd.services.LoanService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,6 +23,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -22,16 +31,29 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -50,6 +72,12 @@ class BookControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    BookImportService bookImportService;
+
+    @MockBean
+    ExportService exportService;
+
     @Test
     @DisplayName("Should create a book")
     void registerBook() throws Exception {
@@ -130,6 +158,74 @@ class BookControllerTest {
                 .andExpect(jsonPath("$.errors.[0].message", is("Book not found")));
     }
 
+    @Test
+    @DisplayName("Should tag a book with its version")
+    void shouldTagBookWithVersion() throws Exception {
+        BookDTO response = getBookDTO();
+        response.setId(1L);
+        response.setVersion(3L);
+
+        when(bookService.getById(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/book/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Should answer an unchanged book with 304")
+    void shouldNotReturnUnchangedBook() throws Exception {
+        BookDTO response = getBookDTO();
+        response.setId(1L);
+        response.setVersion(3L);
+
+        when(bookService.getById(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/book/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("Should return a changed book to a conditional get")
+    void shouldReturnChangedBook() throws Exception {
+        BookDTO response = getBookDTO();
+        response.setId(1L);
+        response.setVersion(4L);
+
+        when(bookService.getById(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/book/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.name", is("A alcateia")));
+    }
+
+    @Test
+    @DisplayName("Should tag a changed book with the version of the returned body")
+    void shouldTagChangedBookWithBodyVersion() throws Exception {
+        BookDTO stale = getBookDTO();
+        stale.setId(1L);
+        stale.setVersion(4L);
+        BookDTO current = getBookDTO();
+        current.setId(1L);
+        current.setName("Renamed");
+        current.setVersion(5L);
+
+        // the book changes between two reads, only one of them may answer the request
+        when(bookService.getById(1L)).thenReturn(current, stale);
+
+        mockMvc.perform(get("/book/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues("ETag", "\"5\""))
+                .andExpect(jsonPath("$.name", is("Renamed")));
+
+        verify(bookService, times(1)).getById(1L);
+    }
+
     @Test
     @DisplayName("Should delete a book")
     void shouldDeleteBookById() throws Exception {
@@ -188,6 +284,66 @@ class BookControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("Should update a book only if it still has the version of If-Match")
+    void shouldUpdateBookIfMatch() throws Exception {
+        BookDTO toUpdate = getBookDTO();
+        toUpdate.setId(1L);
+        String body = new ObjectMapper().writeValueAsString(toUpdate);
+
+        BookDTO expected = getBookDTO();
+        expected.setId(1L);
+        expected.setVersion(3L);
+
+        BookDTO updated = getBookDTO();
+        updated.setId(1L);
+        updated.setVersion(4L);
+
+        when(bookService.update(expected)).thenReturn(updated);
+
+        mockMvc.perform(putRequest(1L, body).header("If-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    @DisplayName("Should update the book of the path and reject a body for another book")
+    void shouldUpdateBookOfPath() throws Exception {
+        BookDTO withoutId = getBookDTO();
+        BookDTO expected = getBookDTO();
+        expected.setId(1L);
+        when(bookService.update(expected)).thenReturn(expected);
+
+        mockMvc.perform(putRequest(1L, new ObjectMapper().writeValueAsString(withoutId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(1)));
+
+        BookDTO otherBook = getBookDTO();
+        otherBook.setId(2L);
+
+        mockMvc.perform(putRequest(1L, new ObjectMapper().writeValueAsString(otherBook)).header("If-Match", "\"3\""))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.[0].message", is("Book id does not match the path")));
+        verify(bookService, never()).update(otherBook);
+    }
+
+    @Test
+    @DisplayName("Should not update a book changed since If-Match")
+    void shouldNotUpdateChangedBook() throws Exception {
+        BookDTO toUpdate = getBookDTO();
+        toUpdate.setId(1L);
+        String body = new ObjectMapper().writeValueAsString(toUpdate);
+
+        when(bookService.update(any())).thenThrow(new BusinessException("Book was changed by another request", 412));
+
+        mockMvc.perform(putRequest(1L, body).header("If-Match", "\"3\""))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.errors.[0].message", is("Book was changed by another request")));
+
+        mockMvc.perform(putRequest(1L, body).header("If-Match", "W/\"3\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     @DisplayName("Get book with filter")
     void SholdGetBookByFilter() throws Exception {
@@ -210,6 +366,168 @@ class BookControllerTest {
                 .andExpect(jsonPath("$.pageable.pageSize", is(100)));
     }
 
+    @Test
+    @DisplayName("Should import books from ndjson")
+    void shouldImportBooks() throws Exception {
+        BookImportResultDTO result = BookImportResultDTO.builder()
+                .row(1)
+                .id(1L)
+                .isbn("123")
+                .status(BookImportResultDTO.Status.CREATED)
+                .build();
+
+        when(bookImportService.importBooks(any())).thenReturn(singletonList(result));
+
+        String content = new ObjectMapper().writeValueAsString(getBookDTO());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/book/import")
+                .contentType("application/x-ndjson")
+                .content(content))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")));
+    }
+
+    @Test
+    @DisplayName("Get books after a cursor")
+    void shouldGetBooksAfterCursor() throws Exception {
+        BookDTO bookDTO = getBookDTO();
+        bookDTO.setId(1L);
+
+        CursorSliceDTO<BookDTO> slice = CursorSliceDTO.<BookDTO>builder()
+                .content(singletonList(bookDTO))
+                .size(1)
+                .hasNext(true)
+                .nextCursor(KeysetCursor.after(1L).encode())
+                .build();
+
+        when(bookService.findAfter(any(BookDTO.class), any(KeysetCursor.class), anyInt())).thenReturn(slice);
+
+        mockMvc.perform(get("/book?author=Jonathan&cursor=&size=1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andExpect(jsonPath("$.nextCursor", is(slice.getNextCursor())))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Should not get books with an invalid cursor")
+    void shouldNotGetBooksWithInvalidCursor() throws Exception {
+        mockMvc.perform(get("/book?cursor=%%%"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.[0].message", is("Invalid cursor")));
+    }
+
+    @Test
+    @DisplayName("Should search books by name and author")
+    void shouldSearchBooks() throws Exception {
+        BookDTO bookDTO = getBookDTO();
+        bookDTO.setId(1L);
+
+        when(bookService.search(eq("alcatea"), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(singletonList(bookDTO), PageRequest.of(0, 20), false));
+
+        mockMvc.perform(get("/book?q=alcatea"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id", is(1)))
+                .andExpect(jsonPath("$.last", is(true)));
+    }
+
+    @Test
+    @DisplayName("Should not search books after a cursor")
+    void shouldNotSearchBooksAfterCursor() throws Exception {
+        mockMvc.perform(get("/book?q=alcatea&cursor="))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.[0].message", is("Search does not support cursor")));
+
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    @DisplayName("Should get many books by id in one request")
+    void shouldFindBooksById() throws Exception {
+        BookDTO bookDTO = getBookDTO();
+        bookDTO.setId(1L);
+
+        when(bookService.findAllById(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(
+                BookLookupResultDTO.builder().id(1L).status(BookLookupResultDTO.Status.FOUND).book(bookDTO).build(),
+                BookLookupResultDTO.builder().id(2L).status(BookLookupResultDTO.Status.NOT_FOUND).build()));
+
+        mockMvc.perform(get("/book/batch?ids=1,2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].book.isbn", is("123")))
+                .andExpect(jsonPath("$[1].status", is("NOT_FOUND")))
+                .andExpect(jsonPath("$[1].book").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Should look many books up by isbn in one request")
+    void shouldFindBooksByIsbn() throws Exception {
+        when(bookService.findAllByIsbn(Arrays.asList("123", "456"))).thenReturn(Arrays.asList(
+                BookLookupResultDTO.builder().isbn("123").status(BookLookupResultDTO.Status.FOUND)
+                        .book(getBookDTO()).build(),
+                BookLookupResultDTO.builder().isbn("456").status(BookLookupResultDTO.Status.NOT_FOUND).build()));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/book/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"123\", \"456\"]"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status", is("FOUND")))
+                .andExpect(jsonPath("$[1].isbn", is("456")));
+    }
+
+    @Test
+    @DisplayName("Should tell which books are available")
+    void shouldFindAvailability() throws Exception {
+        when(loanService.findAvailability(Arrays.asList(1L, 2L, 3L))).thenReturn(BookAvailabilityDTO.builder()
+                .available(Arrays.asList(1L, 3L))
+                .loaned(singletonList(2L))
+                .build());
+
+        mockMvc.perform(get("/book/availability?ids=1,2,3"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available", hasSize(2)))
+                .andExpect(jsonPath("$.loaned[0]", is(2)));
+    }
+
+    @Test
+    @DisplayName("Should export books as csv")
+    void shouldExportBooks() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("id,name,isbn,author\n1,A alcateia,123,Jonathan Anthony\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).exportBooks(any(BookDTO.class), eq(ExportFormat.CSV), any(OutputStream.class));
+
+        mockMvc.perform(get("/book/export?author=Jonathan&format=csv"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=books.csv"))
+                .andExpect(content().string("id,name,isbn,author\n1,A alcateia,123,Jonathan Anthony\n"));
+    }
+
+    @Test
+    @DisplayName("Should not export books in an unknown format")
+    void shouldNotExportUnknownFormat() throws Exception {
+        mockMvc.perform(get("/book/export?format=xml"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.[0].message", is("Invalid export format")));
+    }
+
     private BookDTO getBookDTO() {
         return BookDTO.builder()
                 .name("A alcateia")
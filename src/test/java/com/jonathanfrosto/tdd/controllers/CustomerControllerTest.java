@@ -0,0 +1,76 @@
+package com.jonathanfrosto.tdd.controllers;
+
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.services.LoanService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(controllers = CustomerController.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class CustomerControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    LoanService loanService;
+
+    @Test
+    @DisplayName("Get the open loans of a customer")
+    void shouldGetOpenLoansOfCustomer() throws Exception {
+        LoanDTO loanDTO = LoanDTO.builder().id(1L).isbn("123").customer("Person").loanDate(LocalDate.now()).build();
+
+        CursorSliceDTO<LoanDTO> slice = CursorSliceDTO.<LoanDTO>builder()
+                .content(singletonList(loanDTO))
+                .size(20)
+                .hasNext(false)
+                .build();
+
+        when(loanService.findByCustomerAfter(eq("Person"), eq(false), any(KeysetCursor.class), eq(20))).thenReturn(slice);
+
+        mockMvc.perform(get("/customers/Person/loans?returned=false"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].customer", is("Person")))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+    }
+
+    @Test
+    @DisplayName("Should not get the loans of a customer with a page bigger than the limit")
+    void shouldNotGetLoansOfCustomerOverLimit() throws Exception {
+        when(loanService.findByCustomerAfter(eq("Person"), isNull(), any(KeysetCursor.class), eq(5000)))
+                .thenThrow(new BusinessException("Size must be between 1 and " + CursorSliceDTO.MAX_SIZE));
+
+        mockMvc.perform(get("/customers/Person/loans?size=5000"))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+}
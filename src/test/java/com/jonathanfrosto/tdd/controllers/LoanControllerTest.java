@@ -1,9 +1,15 @@
 package com.jonathanfrosto.tdd.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.ExportFormat;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
 import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
 import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanReturnDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanReturnResultDTO;
 import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.services.ExportService;
 import com.jonathanfrosto.tdd.services.LoanService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,6 +21,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -22,16 +29,27 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -47,6 +65,9 @@ class LoanControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    ExportService exportService;
+
     private static final String LOAN_API = "/loans";
 
     @Test
@@ -142,6 +163,32 @@ class LoanControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("Should give back many loans at once")
+    void shouldGiveBackBooks() throws Exception {
+        LoanReturnDTO request = LoanReturnDTO.builder()
+                .ids(Arrays.asList(1L, 2L))
+                .isbns(singletonList("123"))
+                .build();
+
+        LoanReturnResultDTO result = LoanReturnResultDTO.builder()
+                .returned(Arrays.asList(1L, 3L))
+                .notFound(singletonList(2L))
+                .alreadyReturned(Collections.emptyList())
+                .notLoaned(Collections.emptyList())
+                .build();
+
+        when(loanService.giveBackBooks(any(LoanReturnDTO.class))).thenReturn(result);
+
+        mockMvc.perform(patch(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(request)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.returned", hasSize(2)))
+                .andExpect(jsonPath("$.notFound[0]", is(2)));
+    }
+
     @Test
     @DisplayName("Get book with filter")
     void ShouldGetBookByFilter() throws Exception {
@@ -164,6 +211,85 @@ class LoanControllerTest {
                 .andExpect(jsonPath("$.pageable.pageSize", is(10)));
     }
 
+    @Test
+    @DisplayName("Get loans with filter without counting")
+    void ShouldGetLoansByFilterWithoutCount() throws Exception {
+        LoanDTO loanDTO = getLoanDTO();
+        loanDTO.setId(1L);
+
+        when(loanService.findSlice(any(LoanFilterDTO.class), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(singletonList(loanDTO), PageRequest.of(0, 10), true));
+
+        mockMvc.perform(get(LOAN_API + "?customer=Person&page=0&size=10&count=false"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.last", is(false)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+
+        verify(loanService, never()).find(any(LoanFilterDTO.class), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Get loans after a cursor")
+    void ShouldGetLoansAfterCursor() throws Exception {
+        LoanDTO loanDTO = getLoanDTO();
+        loanDTO.setId(1L);
+
+        CursorSliceDTO<LoanDTO> slice = CursorSliceDTO.<LoanDTO>builder()
+                .content(singletonList(loanDTO))
+                .size(10)
+                .hasNext(false)
+                .build();
+
+        when(loanService.findAfter(any(LoanFilterDTO.class), any(KeysetCursor.class), eq(10))).thenReturn(slice);
+
+        mockMvc.perform(get(LOAN_API + "?customer=Person&size=10&cursor=" + KeysetCursor.after(1L).encode()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.hasNext", is(false)))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Get overdue loans")
+    void shouldGetOverdueLoans() throws Exception {
+        LoanDTO loanDTO = getLoanDTO();
+        loanDTO.setId(1L);
+
+        CursorSliceDTO<LoanDTO> slice = CursorSliceDTO.<LoanDTO>builder()
+                .content(singletonList(loanDTO))
+                .size(20)
+                .hasNext(false)
+                .build();
+
+        when(loanService.findOverdueAfter(any(KeysetCursor.class), eq(20))).thenReturn(slice);
+
+        mockMvc.perform(get(LOAN_API + "/overdue"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+    }
+
+    @Test
+    @DisplayName("Export loans as ndjson by default")
+    void shouldExportLoans() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("{\"id\":1,\"isbn\":\"123\",\"customer\":\"Person\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).exportLoans(any(LoanFilterDTO.class), eq(ExportFormat.NDJSON), any(OutputStream.class));
+
+        mockMvc.perform(get(LOAN_API + "/export?customer=Person"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=loans.ndjson"))
+                .andExpect(content().string("{\"id\":1,\"isbn\":\"123\",\"customer\":\"Person\"}\n"));
+    }
+
     private MockHttpServletRequestBuilder postRequest(String json) {
         return MockMvcRequestBuilders.post(LOAN_API)
                 .contentType(MediaType.APPLICATION_JSON)
@@ -0,0 +1,86 @@
+package com.jonathanfrosto.tdd.controllers;
+
+import com.jonathanfrosto.tdd.domain.dto.BookLoanStatsDTO;
+import com.jonathanfrosto.tdd.domain.dto.DailyLoanStatsDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanStatsDTO;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.services.LoanStatsService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(controllers = StatsController.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class StatsControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    LoanStatsService loanStatsService;
+
+    @Test
+    @DisplayName("Get the most loaned books")
+    void shouldGetTopBooks() throws Exception {
+        BookLoanStatsDTO book = BookLoanStatsDTO.builder().bookId(1L).isbn("123").name("Book").loans(42).build();
+        when(loanStatsService.findTopBooks(10)).thenReturn(singletonList(book));
+
+        mockMvc.perform(get("/stats/books/top"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].isbn", is("123")))
+                .andExpect(jsonPath("$[0].loans", is(42)));
+    }
+
+    @Test
+    @DisplayName("Get the daily checkouts and returns of a period")
+    void shouldGetDailyStats() throws Exception {
+        LocalDate day = LocalDate.of(2021, 5, 1);
+        LoanStatsDTO stats = LoanStatsDTO.builder()
+                .active(3)
+                .days(singletonList(DailyLoanStatsDTO.builder().date(day).checkouts(5).returns(2).build()))
+                .build();
+        when(loanStatsService.findDaily(eq(day), isNull())).thenReturn(stats);
+
+        mockMvc.perform(get("/stats/loans/daily?from=2021-05-01"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.active", is(3)))
+                .andExpect(jsonPath("$.days[0].date", is("2021-05-01")))
+                .andExpect(jsonPath("$.days[0].checkouts", is(5)));
+    }
+
+    @Test
+    @DisplayName("Should not get more top books than the limit")
+    void shouldNotGetTopBooksOverLimit() throws Exception {
+        when(loanStatsService.findTopBooks(500))
+                .thenThrow(new BusinessException("Size must be between 1 and " + BookLoanStatsDTO.MAX_SIZE));
+
+        mockMvc.perform(get("/stats/books/top?size=500"))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,122 @@
+package com.jonathanfrosto.tdd.domain.cache;
+
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.metrics.StatementCounter;
+import com.jonathanfrosto.tdd.repositories.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Example;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@AutoConfigureMetrics
+class EntityCacheRegionFactoryTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Should load a committed book from the second-level cache without a statement")
+    void entityCacheHit() {
+        // Given
+        Book book = bookRepository.save(Book.builder().name("Cached").author("Jonathan Anthony").isbn("l2-" + System.nanoTime()).build());
+
+        // When
+        long statements;
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            assertThat(bookRepository.findById(book.getId())).get().extracting(Book::getName).isEqualTo("Cached");
+            statements = scope.count();
+        }
+
+        // Then
+        assertThat(statements).isZero();
+        assertThat(statistics.getDomainDataRegionStatistics(Book.class.getName()).getHitCount()).isEqualTo(1);
+        assertThat(meterRegistry.find("hibernate.second.level.cache.requests")
+                .tag("region", Book.class.getName())
+                .tag("result", "hit")
+                .functionCounter())
+                .isNotNull();
+    }
+
+    @Test
+    @DisplayName("Should answer repeated isbn lookups from the query cache until a book changes")
+    void queryCacheHit() {
+        // Given
+        String isbn = "query-" + System.nanoTime();
+        Book book = bookRepository.save(Book.builder().name("Queried").author("Jonathan Anthony").isbn(isbn).build());
+        bookRepository.findByIsbn(isbn);
+        bookRepository.existsByIsbn(isbn);
+
+        // When
+        long statements;
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            assertThat(bookRepository.findByIsbn(isbn)).isPresent();
+            assertThat(bookRepository.existsByIsbn(isbn)).isTrue();
+            statements = scope.count();
+        }
+
+        book.setName("Renamed");
+        bookRepository.save(book);
+
+        // Then
+        assertThat(statements).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(2);
+        assertThat(bookRepository.findByIsbn(isbn)).get().extracting(Book::getName).isEqualTo("Renamed");
+        assertThat(statistics.getQueryCacheMissCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should stream books without filling the second-level cache")
+    void streamBypassesCache() {
+        // Given
+        Book book = bookRepository.save(Book.builder().name("Streamed").author("Jonathan Anthony").isbn("stream-" + System.nanoTime()).build());
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        // When
+        long streamed = transactionTemplate.execute(status -> {
+            try (Stream<Book> stream = bookRepository.streamByExample(Example.of(new Book()), 100)) {
+                return stream.count();
+            }
+        });
+
+        // Then
+        assertThat(streamed).isPositive();
+        assertThat(entityManagerFactory.getCache().contains(Book.class, book.getId())).isFalse();
+        assertThat(statistics.getDomainDataRegionStatistics(Book.class.getName()).getPutCount()).isZero();
+    }
+}
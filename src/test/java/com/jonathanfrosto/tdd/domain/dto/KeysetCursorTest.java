@@ -0,0 +1,60 @@
+package com.jonathanfrosto.tdd.domain.dto;
+
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class KeysetCursorTest {
+
+    @Test
+    @DisplayName("Should round trip an id cursor")
+    void shouldRoundTripIdCursor() {
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.after(42L).encode());
+
+        assertThat(cursor.getId()).isEqualTo(42L);
+        assertThat(cursor.getDate()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should round trip a date and id cursor")
+    void shouldRoundTripDateCursor() {
+        LocalDate date = LocalDate.of(2021, 5, 1);
+
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.after(date, 7L).encode());
+
+        assertThat(cursor.getDate()).isEqualTo(date);
+        assertThat(cursor.getId()).isEqualTo(7L);
+    }
+
+    @Test
+    @DisplayName("Should start from the first page with an empty cursor")
+    void shouldDecodeEmptyCursor() {
+        assertThat(KeysetCursor.decode("").isFirst()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should not decode a tampered cursor")
+    void shouldNotDecodeInvalidCursor() {
+        Throwable exception = catchThrowable(() -> KeysetCursor.decode("not-a-cursor"));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    @DisplayName("Should not accept an id-only cursor where a date is required")
+    void shouldRequireDate() {
+        Throwable exception = catchThrowable(() -> KeysetCursor.after(42L).requireDate());
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Invalid cursor");
+        assertThat(KeysetCursor.first().requireDate().isFirst()).isTrue();
+    }
+}
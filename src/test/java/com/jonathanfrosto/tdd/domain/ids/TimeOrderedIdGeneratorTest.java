@@ -0,0 +1,50 @@
+package com.jonathanfrosto.tdd.domain.ids;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    @DisplayName("Should generate unique and increasing ids within the same millisecond")
+    void shouldGenerateIncreasingIds() {
+        Clock fixed = Clock.fixed(Instant.parse("2021-06-01T00:00:00Z"), ZoneOffset.UTC);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(3, fixed);
+
+        Set<Long> ids = new HashSet<>();
+        long previous = -1;
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.next();
+            assertThat(id).isGreaterThan(previous);
+            ids.add(id);
+            previous = id;
+        }
+
+        assertThat(ids).hasSize(10_000);
+    }
+
+    @Test
+    @DisplayName("Should encode the node id")
+    void shouldEncodeNodeId() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(5);
+
+        assertThat((generator.next() >> 12) & TimeOrderedIdGenerator.MAX_NODE_ID).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Should not accept an out of range node id")
+    void shouldNotAcceptInvalidNodeId() {
+        Throwable exception = catchThrowable(() -> new TimeOrderedIdGenerator(TimeOrderedIdGenerator.MAX_NODE_ID + 1));
+
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,54 @@
+package com.jonathanfrosto.tdd.domain.mappers;
+
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.entities.Loan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoanMapperTest {
+
+    LoanMapper loanMapper = new LoanMapper();
+
+    @Test
+    @DisplayName("Should flatten the book isbn into the dto")
+    void shouldMapLoanToDto() {
+        Loan loan = Loan.builder()
+                .id(1L)
+                .customer("jonathan")
+                .book(Book.builder().id(2L).isbn("123").build())
+                .build();
+
+        LoanDTO dto = loanMapper.toDto(loan);
+
+        assertThat(dto.getId()).isEqualTo(1L);
+        assertThat(dto.getCustomer()).isEqualTo("jonathan");
+        assertThat(dto.getIsbn()).isEqualTo("123");
+    }
+
+    @Test
+    @DisplayName("Should build a loan example from the filter")
+    void shouldMapFilterToExample() {
+        LoanFilterDTO filter = new LoanFilterDTO();
+        filter.setCustomer("jonathan");
+        filter.setIsbn("123");
+
+        Loan example = loanMapper.toExample(filter);
+
+        assertThat(example.getCustomer()).isEqualTo("jonathan");
+        assertThat(example.getBook().getIsbn()).isEqualTo("123");
+        assertThat(example.getBook().getId()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should leave the book out of the example without isbn")
+    void shouldMapFilterWithoutIsbn() {
+        LoanFilterDTO filter = new LoanFilterDTO();
+        filter.setCustomer("jonathan");
+
+        assertThat(loanMapper.toExample(filter).getBook()).isNull();
+    }
+}
@@ -0,0 +1,50 @@
+package com.jonathanfrosto.tdd.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class QueryMetricsListenerTest {
+
+    @Test
+    @DisplayName("Should resolve the registry and register each statement timer only once")
+    @SuppressWarnings("unchecked")
+    void shouldReuseTimers() {
+        // Given
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable()).thenReturn(registry);
+        QueryMetricsListener listener = new QueryMetricsListener(meterRegistry, Duration.ofSeconds(10));
+        List<QueryInfo> select = Collections.singletonList(new QueryInfo("select * from book where isbn = ?"));
+
+        // When
+        listener.afterQuery(execution(true), select);
+        listener.afterQuery(execution(true), select);
+        listener.afterQuery(execution(false), select);
+
+        // Then
+        verify(meterRegistry, times(1)).getIfAvailable();
+        assertThat(registry.get("db.statements").tag("type", "select").tag("success", "true").timer().count())
+                .isEqualTo(2);
+        assertThat(registry.get("db.statements").tag("type", "select").tag("success", "false").timer().count())
+                .isEqualTo(1);
+    }
+
+    private static ExecutionInfo execution(boolean success) {
+        ExecutionInfo execInfo = new ExecutionInfo();
+        execInfo.setSuccess(success);
+        execInfo.setElapsedTime(5);
+        return execInfo;
+    }
+}
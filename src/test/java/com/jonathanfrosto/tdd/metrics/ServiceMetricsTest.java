@@ -0,0 +1,102 @@
+package com.jonathanfrosto.tdd.metrics;
+
+import com.jonathanfrosto.tdd.exceptions.GlobalExceptionHandler;
+import com.jonathanfrosto.tdd.services.cache.BookIsbnCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class ServiceMetricsTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    BookIsbnCache bookIsbnCache;
+
+    @Autowired
+    GlobalExceptionHandler globalExceptionHandler;
+
+    @Test
+    @DisplayName("Should time service calls and count business errors by status")
+    void businessErrorMetrics() throws Exception {
+        // When
+        mockMvc.perform(post("/loans")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"isbn\":\"missing\",\"customer\":\"jonathan\"}"))
+                .andExpect(status().isNotFound());
+
+        // Then
+        assertThat(meterRegistry.find("api.errors").tag("status", "404").counter())
+                .isNotNull()
+                .satisfies(counter -> assertThat(counter.count()).isEqualTo(1));
+        assertThat(meterRegistry.find("service.invocations")
+                .tag("class", "LoanServiceImpl")
+                .tag("method", "save")
+                .tag("status", "404")
+                .timer())
+                .isNotNull();
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("service_invocations_seconds_bucket")))
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("api_errors_total")));
+    }
+
+    @Test
+    @DisplayName("Should count a saturated executor as a rejected task")
+    void rejectedTaskMetrics() {
+        // When
+        ResponseEntity<?> response = globalExceptionHandler.rejected(new TaskRejectedException("Executor is full"));
+
+        // Then
+        assertThat(response.getStatusCodeValue()).isEqualTo(503);
+        assertThat(meterRegistry.find("api.errors")
+                .tag("exception", "TaskRejectedException")
+                .tag("status", "503")
+                .counter())
+                .isNotNull()
+                .satisfies(counter -> assertThat(counter.count()).isEqualTo(1));
+    }
+
+    @Test
+    @DisplayName("Should publish the isbn and count cache statistics")
+    void cacheMetrics() {
+        // When
+        bookIsbnCache.findByIsbn("not-cached");
+
+        // Then
+        assertThat(meterRegistry.find("cache.gets").tag("cache", "book.isbn").tag("result", "miss").functionCounter())
+                .isNotNull()
+                .satisfies(counter -> assertThat(counter.count()).isGreaterThanOrEqualTo(1));
+        assertThat(meterRegistry.find("cache.evictions").tag("cache", "book.isbn").functionCounter()).isNotNull();
+        assertThat(meterRegistry.find("cache.gets").tag("cache", "search.count").functionCounter()).isNotNull();
+    }
+}
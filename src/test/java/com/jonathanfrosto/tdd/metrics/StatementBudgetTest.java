@@ -0,0 +1,85 @@
+package com.jonathanfrosto.tdd.metrics;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.services.BookService;
+import com.jonathanfrosto.tdd.services.LoanService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class StatementBudgetTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    LoanService loanService;
+
+    BookDTO book;
+
+    @BeforeEach
+    void setUp() {
+        String isbn = "budget-" + System.nanoTime();
+        book = bookService.save(BookDTO.builder().name("Budget").author("Jonathan Anthony").isbn(isbn).build());
+        loanService.save(LoanDTO.builder().isbn(isbn).customer("budget").build());
+    }
+
+    @Test
+    @DisplayName("Listing loans without totals should cost a single statement")
+    void loanListingBudget() throws Exception {
+        // When
+        long statements;
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            mockMvc.perform(get("/loans?customer=budget&count=false")).andExpect(status().isOk());
+            statements = scope.count();
+        }
+
+        // Then
+        assertThat(statements).isEqualTo(1);
+        assertThat(meterRegistry.find("http.server.requests.statements").tag("uri", "/loans").summary())
+                .isNotNull();
+        assertThat(meterRegistry.find("repository.invocations")
+                .tag("repository", "LoanRepository")
+                .tag("method", "findSliceByExample")
+                .timer())
+                .isNotNull();
+    }
+
+    @Test
+    @DisplayName("Paging the loans of a book with a cursor should cost a single statement")
+    void bookLoansBudget() throws Exception {
+        // When
+        long statements;
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            mockMvc.perform(get("/book/" + book.getId() + "/loans?cursor=")).andExpect(status().isOk());
+            statements = scope.count();
+        }
+
+        // Then
+        assertThat(statements).isEqualTo(1);
+        assertThat(meterRegistry.find("db.statements").tag("type", "select").timer()).isNotNull();
+    }
+}
@@ -1,16 +1,31 @@
 package com.jonathanfrosto.tdd.repositories;
 
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
 import com.jonathanfrosto.tdd.domain.entities.Book;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.PersistenceException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -56,4 +71,159 @@ class BookRepositoryTest {
         // Then
         assertThat(exists).isFalse();
     }
+
+    @Test
+    @DisplayName("Should return only the isbns already registered")
+    void returnExistingIsbns() {
+        // Given
+        Book book = Book.builder()
+                .author("Jonathan Anthony")
+                .name("A alcateia")
+                .isbn("123")
+                .build();
+
+        testEntityManager.persist(book);
+
+        // When
+        Set<String> existing = bookRepository.findExistingIsbns(Arrays.asList("123", "456"));
+
+        // Then
+        assertThat(existing).containsExactly("123");
+    }
+
+    @Test
+    @DisplayName("Should find the books of a list of isbns")
+    void findByIsbnIn() {
+        // Given
+        Book book = Book.builder()
+                .author("Jonathan Anthony")
+                .name("A alcateia")
+                .isbn("123")
+                .build();
+
+        testEntityManager.persist(book);
+
+        // When
+        List<Book> books = bookRepository.findByIsbnIn(Arrays.asList("123", "456"));
+
+        // Then
+        assertThat(books).extracting(Book::getId).containsExactly(book.getId());
+    }
+
+    @Test
+    @DisplayName("Should page books by example after the cursor id")
+    void findByExampleAfterCursor() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            testEntityManager.persist(Book.builder()
+                    .author(i % 2 == 0 ? "Jonathan Anthony" : "Someone else")
+                    .name("Book " + i)
+                    .isbn(String.valueOf(i))
+                    .build());
+        }
+        Example<Book> example = Example.of(Book.builder().author("Jonathan Anthony").build());
+
+        // When
+        List<Book> first = bookRepository.findByExampleAfter(example, KeysetCursor.first(), 2);
+        List<Book> second = bookRepository.findByExampleAfter(example, KeysetCursor.after(first.get(1).getId()), 2);
+
+        // Then
+        assertThat(first).extracting(Book::getIsbn).containsExactly("0", "2");
+        assertThat(second).extracting(Book::getIsbn).containsExactly("4");
+    }
+
+    @Test
+    @DisplayName("Should stream books by example in id order and detach them")
+    void streamByExample() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            testEntityManager.persist(Book.builder()
+                    .author(i % 2 == 0 ? "Jonathan Anthony" : "Someone else")
+                    .name("Book " + i)
+                    .isbn(String.valueOf(i))
+                    .build());
+        }
+        testEntityManager.flush();
+        Example<Book> example = Example.of(Book.builder().author("Jonathan Anthony").build());
+
+        // When
+        List<Book> books;
+        try (Stream<Book> stream = bookRepository.streamByExample(example, 2)) {
+            books = stream.collect(Collectors.toList());
+        }
+
+        // Then
+        assertThat(books).extracting(Book::getIsbn).containsExactly("0", "2", "4");
+        assertThat(books).noneMatch(testEntityManager.getEntityManager()::contains);
+    }
+
+    @Test
+    @DisplayName("Should restore the session cache mode when the stream cannot be opened")
+    void streamByExampleFailure() {
+        // Given
+        Session session = testEntityManager.getEntityManager().unwrap(Session.class);
+        Example<Book> example = Example.of(Book.builder().author("Jonathan Anthony").build());
+
+        // When
+        Throwable exception = catchThrowable(() -> bookRepository.streamByExample(example, -1));
+
+        // Then
+        assertThat(exception).isNotNull();
+        assertThat(session.getCacheMode()).isEqualTo(CacheMode.NORMAL);
+    }
+
+    @Test
+    @DisplayName("Should slice books by example without counting")
+    void findSliceByExample() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            testEntityManager.persist(Book.builder()
+                    .author("Jonathan Anthony")
+                    .name("Book " + i)
+                    .isbn(String.valueOf(i))
+                    .build());
+        }
+        Example<Book> example = Example.of(Book.builder().author("Jonathan Anthony").build());
+
+        // When
+        Slice<Book> first = bookRepository.findSliceByExample(example, PageRequest.of(0, 2, Sort.by("isbn")));
+        Slice<Book> last = bookRepository.findSliceByExample(example, PageRequest.of(2, 2, Sort.by("isbn")));
+
+        // Then
+        assertThat(first.getContent()).extracting(Book::getIsbn).containsExactly("0", "1");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).extracting(Book::getIsbn).containsExactly("4");
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should reject a duplicated isbn")
+    void rejectDuplicatedIsbn() {
+        // Given
+        testEntityManager.persistAndFlush(Book.builder().author("Jonathan Anthony").name("Book").isbn("123").build());
+
+        // When
+        Throwable exception = catchThrowable(() -> testEntityManager.persistAndFlush(
+                Book.builder().author("Someone else").name("Other book").isbn("123").build()));
+
+        // Then
+        assertThat(exception).isInstanceOf(PersistenceException.class);
+    }
+
+    @Test
+    @DisplayName("Should bump the version on every update")
+    void bumpVersionOnUpdate() {
+        // Given
+        Book book = testEntityManager.persistAndFlush(
+                Book.builder().author("Jonathan Anthony").name("Book").isbn("123").build());
+        Long created = book.getVersion();
+
+        // When
+        book.setName("Renamed");
+        testEntityManager.flush();
+
+        // Then
+        assertThat(created).isZero();
+        assertThat(book.getVersion()).isEqualTo(1);
+    }
 }
@@ -1,20 +1,36 @@
 package com.jonathanfrosto.tdd.repositories;
 
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
 import com.jonathanfrosto.tdd.domain.entities.Book;
 import com.jonathanfrosto.tdd.domain.entities.Loan;
 import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.PersistenceException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 class LoanRepositoryTest {
 
     @Autowired
@@ -41,4 +57,245 @@ class LoanRepositoryTest {
 
         Assertions.assertThat(exists).isTrue();
     }
+
+    @Test
+    @DisplayName("Should page loans by loan date and id after the cursor")
+    void findByExampleAfterCursor() {
+        // a book has a single open loan, so each loan gets its own copy
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Book book = Book.builder()
+                    .name("A alcateia")
+                    .isbn(String.valueOf(i))
+                    .author("Jonathan")
+                    .build();
+            testEntityManager.persist(book);
+            books.add(book);
+        }
+
+        LocalDate today = LocalDate.now();
+        Loan newest = persistLoan(books.get(0), "jonathan", today);
+        Loan oldest = persistLoan(books.get(1), "jonathan", today.minusDays(2));
+        Loan sameDay = persistLoan(books.get(2), "jonathan", today);
+        persistLoan(books.get(3), "someone", today.minusDays(1));
+
+        Example<Loan> example = Example.of(Loan.builder().customer("jonathan").build());
+
+        List<LoanDTO> first = loanRepository.findByExampleAfter(example, KeysetCursor.first(), 2);
+        LoanDTO last = first.get(1);
+        List<LoanDTO> second = loanRepository.findByExampleAfter(example,
+                KeysetCursor.after(last.getLoanDate(), last.getId()), 2);
+
+        Assertions.assertThat(first).extracting(LoanDTO::getId).containsExactly(oldest.getId(), newest.getId());
+        Assertions.assertThat(second).extracting(LoanDTO::getId).containsExactly(sameDay.getId());
+    }
+
+    @Test
+    @DisplayName("Should stream loans by example in loan date order")
+    void streamByExample() {
+        Book book = Book.builder().name("A alcateia").isbn("123").author("Jonathan").build();
+        Book other = Book.builder().name("Other").isbn("456").author("Jonathan").build();
+        testEntityManager.persist(book);
+        testEntityManager.persist(other);
+
+        LocalDate today = LocalDate.now();
+        Loan newest = persistLoan(book, "jonathan", today);
+        Loan oldest = persistLoan(other, "jonathan", today.minusDays(1));
+
+        List<LoanDTO> loans;
+        try (Stream<LoanDTO> stream = loanRepository.streamByExample(
+                Example.of(Loan.builder().customer("jonathan").build()), 1)) {
+            loans = stream.collect(Collectors.toList());
+        }
+
+        Assertions.assertThat(loans).extracting(LoanDTO::getId, LoanDTO::getIsbn)
+                .containsExactly(Assertions.tuple(oldest.getId(), "456"), Assertions.tuple(newest.getId(), "123"));
+    }
+
+    @Test
+    @DisplayName("Should stream the ids of the books with an open loan")
+    void streamOpenBookIds() {
+        Book loaned = Book.builder().name("A alcateia").isbn("123").author("Jonathan").build();
+        Book returned = Book.builder().name("Other").isbn("456").author("Jonathan").build();
+        testEntityManager.persist(loaned);
+        testEntityManager.persist(returned);
+
+        persistLoan(loaned, "jonathan", LocalDate.now());
+        persistLoan(returned, "jonathan", LocalDate.now()).setReturned(true);
+        testEntityManager.flush();
+
+        List<Long> bookIds;
+        try (Stream<Long> stream = loanRepository.streamOpenBookIds(1)) {
+            bookIds = stream.collect(Collectors.toList());
+        }
+
+        Assertions.assertThat(bookIds).containsExactly(loaned.getId());
+    }
+
+    @Test
+    @DisplayName("Should page the loans of a customer, optionally only the open or the returned ones")
+    void findByCustomerAfterCursor() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Book book = Book.builder().name("A alcateia").isbn(String.valueOf(i)).author("Jonathan").build();
+            testEntityManager.persist(book);
+            books.add(book);
+        }
+
+        LocalDate today = LocalDate.now();
+        Loan returned = persistLoan(books.get(0), "jonathan", today.minusDays(2));
+        returned.setReturned(true);
+        testEntityManager.flush();
+        Loan older = persistLoan(books.get(1), "jonathan", today.minusDays(1));
+        Loan newer = persistLoan(books.get(2), "jonathan", today);
+        persistLoan(books.get(0), "someone", today);
+        testEntityManager.flush();
+
+        List<LoanDTO> history = loanRepository.findByCustomerAfter("jonathan", null, KeysetCursor.first(), 10);
+        List<LoanDTO> open = loanRepository.findByCustomerAfter("jonathan", false, KeysetCursor.first(), 1);
+        List<LoanDTO> nextOpen = loanRepository.findByCustomerAfter("jonathan", false,
+                KeysetCursor.after(open.get(0).getLoanDate(), open.get(0).getId()), 10);
+        List<LoanDTO> returnedOnly = loanRepository.findByCustomerAfter("jonathan", true, KeysetCursor.first(), 10);
+
+        Assertions.assertThat(history).extracting(LoanDTO::getId)
+                .containsExactly(returned.getId(), older.getId(), newer.getId());
+        Assertions.assertThat(open).extracting(LoanDTO::getId).containsExactly(older.getId());
+        Assertions.assertThat(nextOpen).extracting(LoanDTO::getId).containsExactly(newer.getId());
+        Assertions.assertThat(returnedOnly).extracting(LoanDTO::getId, LoanDTO::getIsbn)
+                .containsExactly(Assertions.tuple(returned.getId(), "0"));
+    }
+
+    @Test
+    @DisplayName("Should find the open loans inside a loan date window")
+    void findOpenBetween() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Book book = Book.builder().name("Book " + i).isbn(String.valueOf(i)).author("Jonathan").build();
+            testEntityManager.persist(book);
+            books.add(book);
+        }
+
+        LocalDate today = LocalDate.now();
+        persistLoan(books.get(0), "jonathan", today.minusDays(30));
+        Loan inWindow = persistLoan(books.get(1), "jonathan", today.minusDays(20));
+        persistLoan(books.get(2), "jonathan", today.minusDays(5));
+        Loan returned = persistLoan(books.get(3), "jonathan", today.minusDays(20));
+        returned.setReturned(true);
+        testEntityManager.flush();
+
+        List<LoanDTO> window = loanRepository.findOpenBetween(today.minusDays(25), today.minusDays(14),
+                KeysetCursor.first(), 10);
+        List<LoanDTO> overdue = loanRepository.findOpenBetween(null, today.minusDays(14), KeysetCursor.first(), 10);
+
+        Assertions.assertThat(window).extracting(LoanDTO::getId).containsExactly(inWindow.getId());
+        Assertions.assertThat(overdue).extracting(LoanDTO::getIsbn).containsExactly("0", "1");
+    }
+
+    @Test
+    @DisplayName("Should page the loans of a book after the cursor")
+    void findByBookIdAfterCursor() {
+        Book book = Book.builder().name("A alcateia").isbn("123").author("Jonathan").build();
+        Book other = Book.builder().name("Other").isbn("456").author("Jonathan").build();
+        testEntityManager.persist(book);
+        testEntityManager.persist(other);
+
+        LocalDate today = LocalDate.now();
+        Loan loan = persistLoan(book, "jonathan", today);
+        persistLoan(other, "jonathan", today);
+
+        List<LoanDTO> loans = loanRepository.findByBookIdAfter(book.getId(), KeysetCursor.first(), 10);
+
+        Assertions.assertThat(loans).extracting(LoanDTO::getId, LoanDTO::getIsbn)
+                .containsExactly(Assertions.tuple(loan.getId(), "123"));
+    }
+
+    @Test
+    @DisplayName("Should read a page of loans and their isbns with a single statement")
+    void findSliceWithSingleStatement() {
+        for (int i = 0; i < 5; i++) {
+            Book book = Book.builder().name("Book " + i).isbn(String.valueOf(i)).author("Jonathan").build();
+            testEntityManager.persist(book);
+            persistLoan(book, "jonathan", LocalDate.now().minusDays(i));
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        Statistics statistics = testEntityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+
+        Slice<LoanDTO> page = loanRepository.findSliceByExample(
+                Example.of(Loan.builder().customer("jonathan").build()), PageRequest.of(0, 10, Sort.by("loanDate")));
+        Slice<LoanDTO> byIsbn = loanRepository.findSliceByExample(
+                Example.of(Loan.builder().book(Book.builder().isbn("3").build()).build()), PageRequest.of(0, 10));
+
+        Assertions.assertThat(page.getContent()).extracting(LoanDTO::getIsbn).containsExactly("4", "3", "2", "1", "0");
+        Assertions.assertThat(byIsbn.getContent()).extracting(LoanDTO::getIsbn).containsExactly("3");
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should allow a single open loan per book")
+    void singleOpenLoanPerBook() {
+        Book book = Book.builder().name("A alcateia").isbn("123").author("Jonathan").build();
+        testEntityManager.persist(book);
+
+        Loan returned = persistLoan(book, "jonathan", LocalDate.now().minusDays(7));
+        testEntityManager.flush();
+        returned.setReturned(true);
+        testEntityManager.flush();
+
+        persistLoan(book, "jonathan", LocalDate.now());
+        testEntityManager.flush();
+
+        Throwable exception = Assertions.catchThrowable(() -> {
+            persistLoan(book, "someone", LocalDate.now());
+            testEntityManager.flush();
+        });
+
+        Assertions.assertThat(exception).isInstanceOf(PersistenceException.class);
+    }
+
+    @Test
+    @DisplayName("Should return open loans in one update and report their status")
+    void markReturned() {
+        Book first = Book.builder().name("A alcateia").isbn("123").author("Jonathan").build();
+        Book second = Book.builder().name("Other").isbn("456").author("Jonathan").build();
+        testEntityManager.persist(first);
+        testEntityManager.persist(second);
+
+        Loan open = persistLoan(first, "jonathan", LocalDate.now());
+        Loan returned = persistLoan(second, "jonathan", LocalDate.now());
+        returned.setReturned(true);
+        testEntityManager.flush();
+
+        List<LoanRepository.LoanStatus> statuses = loanRepository.findStatusByIdIn(Arrays.asList(open.getId(), returned.getId(), 999L));
+        List<LoanRepository.LoanStatus> openByIsbn = loanRepository.findOpenByIsbnIn(Arrays.asList("123", "456"));
+        List<LoanRepository.LoanStatus> locked = loanRepository.lockOpenByIdIn(Arrays.asList(open.getId(), returned.getId()));
+        int updated = loanRepository.markReturned(Arrays.asList(open.getId(), returned.getId()));
+
+        Assertions.assertThat(statuses)
+                .extracting(LoanRepository.LoanStatus::getBookId, LoanRepository.LoanStatus::getIsbn,
+                        LoanRepository.LoanStatus::isReturned)
+                .containsExactlyInAnyOrder(Assertions.tuple(first.getId(), "123", false),
+                        Assertions.tuple(second.getId(), "456", true));
+        Assertions.assertThat(openByIsbn).extracting(LoanRepository.LoanStatus::getId).containsExactly(open.getId());
+        Assertions.assertThat(locked)
+                .extracting(LoanRepository.LoanStatus::getId, LoanRepository.LoanStatus::getBookId)
+                .containsExactly(Assertions.tuple(open.getId(), first.getId()));
+        Assertions.assertThat(updated).isEqualTo(1);
+        Assertions.assertThat(loanRepository.findById(open.getId())).hasValueSatisfying(loan ->
+                Assertions.assertThat(loan.isReturned()).isTrue());
+    }
+
+    private Loan persistLoan(Book book, String customer, LocalDate loanDate) {
+        Loan loan = Loan.builder()
+                .book(book)
+                .customer(customer)
+                .loanDate(loanDate)
+                .returned(false)
+                .build();
+        return testEntityManager.persist(loan);
+    }
 }
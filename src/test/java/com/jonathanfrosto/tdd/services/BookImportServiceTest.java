@@ -0,0 +1,113 @@
+package com.jonathanfrosto.tdd.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookImportResultDTO;
+import com.jonathanfrosto.tdd.services.impl.BookImportServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BookImportServiceTest {
+
+    BookService bookService;
+
+    BookImportService bookImportService;
+
+    @BeforeEach
+    void setUp() {
+        bookService = mock(BookService.class);
+        bookImportService = new BookImportServiceImpl(bookService, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), 2);
+
+        when(bookService.saveAll(anyList())).thenAnswer(invocation -> {
+            List<BookDTO> books = invocation.getArgument(0);
+            return books.stream()
+                    .map(book -> BookImportResultDTO.builder()
+                            .isbn(book.getIsbn())
+                            .status(BookImportResultDTO.Status.CREATED)
+                            .build())
+                    .collect(Collectors.toList());
+        });
+    }
+
+    @Test
+    @DisplayName("Should import a json array in batches")
+    void shouldImportJsonArray() {
+        String json = "[" + book("1") + "," + book("2") + "," + book("3") + "]";
+
+        List<BookImportResultDTO> results = bookImportService.importBooks(stream(json));
+
+        assertThat(results).extracting(BookImportResultDTO::getRow).containsExactly(1, 2, 3);
+        assertThat(results).extracting(BookImportResultDTO::getStatus)
+                .containsOnly(BookImportResultDTO.Status.CREATED);
+
+        verify(bookService, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should import ndjson reporting invalid and duplicated rows")
+    void shouldImportNdjson() {
+        String ndjson = book("1") + "\n{\"name\":\"No isbn\"}\n" + book("1") + "\n" + book("2") + "\n";
+
+        List<BookImportResultDTO> results = bookImportService.importBooks(stream(ndjson));
+
+        assertThat(results).extracting(BookImportResultDTO::getStatus).containsExactly(
+                BookImportResultDTO.Status.CREATED,
+                BookImportResultDTO.Status.INVALID,
+                BookImportResultDTO.Status.DUPLICATED,
+                BookImportResultDTO.Status.CREATED);
+        assertThat(results.get(1).getMessage()).contains("author", "isbn");
+
+        verify(bookService, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should stop at a malformed row keeping the results of the rows before it")
+    void shouldStopAtMalformedRow() {
+        List<BookImportResultDTO> results = bookImportService.importBooks(stream(book("1") + "\n{\"name\":"));
+
+        assertThat(results).extracting(BookImportResultDTO::getRow).containsExactly(1, 2);
+        assertThat(results).extracting(BookImportResultDTO::getStatus).containsExactly(
+                BookImportResultDTO.Status.CREATED,
+                BookImportResultDTO.Status.MALFORMED);
+
+        verify(bookService, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should retry a batch row by row when an isbn was created concurrently")
+    void shouldRetryBatchRowByRow() {
+        when(bookService.saveAll(argThat(books -> books.stream().anyMatch(book -> book.getIsbn().equals("2")))))
+                .thenThrow(new DataIntegrityViolationException("ux_book_isbn"));
+
+        List<BookImportResultDTO> results = bookImportService.importBooks(stream(book("1") + "\n" + book("2") + "\n"));
+
+        assertThat(results).extracting(BookImportResultDTO::getRow).containsExactly(1, 2);
+        assertThat(results).extracting(BookImportResultDTO::getStatus).containsExactly(
+                BookImportResultDTO.Status.CREATED,
+                BookImportResultDTO.Status.DUPLICATED);
+
+        verify(bookService, times(3)).saveAll(anyList());
+    }
+
+    private String book(String isbn) {
+        return String.format("{\"name\":\"A alcateia\",\"author\":\"Jonathan Anthony\",\"isbn\":\"%s\"}", isbn);
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -2,31 +2,45 @@ package com.jonathanfrosto.tdd.services;
 
 import com.jonathanfrosto.tdd.TestConfig;
 import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookImportResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookLookupResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
 import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.mappers.BookMapper;
 import com.jonathanfrosto.tdd.exceptions.BusinessException;
 import com.jonathanfrosto.tdd.repositories.BookRepository;
+import com.jonathanfrosto.tdd.services.cache.BookIsbnCache;
+import com.jonathanfrosto.tdd.services.cache.CountCache;
 import com.jonathanfrosto.tdd.services.impl.BookServiceImpl;
+import com.jonathanfrosto.tdd.services.search.BookSearchIndex;
 import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -42,20 +56,51 @@ class BookServiceTest {
     @Autowired
     BookRepository bookRepository;
 
+    @Autowired
+    BookIsbnCache bookIsbnCache;
+
+    @Autowired
+    CountCache countCache;
+
+    @Autowired
+    BookSearchIndex bookSearchIndex;
+
     @TestConfiguration
     static class configure {
         @Autowired
-        ModelMapper modelMapper;
+        BookMapper bookMapper;
 
         @MockBean
         BookRepository bookRepository;
 
         @Bean
-        BookService getBookService() {
-            return new BookServiceImpl(bookRepository, modelMapper);
+        BookIsbnCache getBookIsbnCache() {
+            return new BookIsbnCache(bookRepository, 100, Duration.ofMinutes(10), Duration.ofSeconds(30));
+        }
+
+        @Bean
+        CountCache getCountCache() {
+            return new CountCache(100, Duration.ofSeconds(30));
+        }
+
+        @Bean
+        BookSearchIndex getBookSearchIndex() {
+            return new BookSearchIndex(bookRepository, bookMapper, 50, 100);
+        }
+
+        @Bean
+        BookService getBookService(BookIsbnCache bookIsbnCache, CountCache countCache, BookSearchIndex bookSearchIndex) {
+            return new BookServiceImpl(bookRepository, bookIsbnCache, countCache, bookSearchIndex, bookMapper);
         }
     }
 
+    @BeforeEach
+    void clearCache() {
+        bookIsbnCache.invalidateAll();
+        countCache.invalidateAll();
+        bookSearchIndex.clear();
+    }
+
     @Test
     @DisplayName("Should save a book")
     void saveBook() {
@@ -78,7 +123,7 @@ class BookServiceTest {
     @DisplayName("Conflict - Duplicated isbn")
     void ShouldNotSaveBookDuplicatedIsbn() {
         // Given
-        when(bookRepository.existsByIsbn(any(String.class))).thenReturn(true);
+        when(bookRepository.findByIsbn(any(String.class))).thenReturn(Optional.of(getRepositoryBook()));
 
         // When
         Throwable exception = Assertions.catchThrowable(() -> bookService.save(getBookDTO()));
@@ -91,6 +136,31 @@ class BookServiceTest {
         verify(bookRepository, never()).save(any(Book.class));
     }
 
+    @Test
+    @DisplayName("Should save a batch of books skipping registered isbns")
+    void shouldSaveAllBooks() {
+        // Given
+        BookDTO registered = getBookDTO();
+        BookDTO newBook = getBookDTO();
+        newBook.setIsbn("456");
+
+        when(bookRepository.findExistingIsbns(any())).thenReturn(Collections.singleton("123"));
+        when(bookRepository.saveAll(any())).thenReturn(singletonList(Book.builder().id(2L).isbn("456").build()));
+
+        // When
+        List<BookImportResultDTO> results = bookService.saveAll(Arrays.asList(registered, newBook));
+
+        // Then
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).getStatus()).isEqualTo(BookImportResultDTO.Status.DUPLICATED);
+        assertThat(results.get(0).getId()).isNull();
+        assertThat(results.get(1).getStatus()).isEqualTo(BookImportResultDTO.Status.CREATED);
+        assertThat(results.get(1).getId()).isEqualTo(2L);
+
+        verify(bookRepository, times(1)).findExistingIsbns(any());
+        verify(bookRepository, times(1)).flush();
+    }
+
     @Test
     @DisplayName("Should get a book by id")
     void ShouldGetBookById() {
@@ -125,6 +195,48 @@ class BookServiceTest {
                 .hasMessage("Book not found");
     }
 
+    @Test
+    @DisplayName("Should look books up by id in request order with a single query")
+    void shouldFindAllById() {
+        // Given
+        Book other = Book.builder().id(3L).name("Other").author("Jonathan Anthony").isbn("456").build();
+        when(bookRepository.findAllById(any())).thenReturn(Arrays.asList(other, getRepositoryBook()));
+
+        // When
+        List<BookLookupResultDTO> results = bookService.findAllById(Arrays.asList(1L, 2L, 3L, 1L));
+
+        // Then
+        assertThat(results).extracting(BookLookupResultDTO::getId, BookLookupResultDTO::getStatus).containsExactly(
+                tuple(1L, BookLookupResultDTO.Status.FOUND),
+                tuple(2L, BookLookupResultDTO.Status.NOT_FOUND),
+                tuple(3L, BookLookupResultDTO.Status.FOUND),
+                tuple(1L, BookLookupResultDTO.Status.FOUND));
+        assertThat(results.get(2).getBook().getIsbn()).isEqualTo("456");
+        assertThat(results.get(1).getBook()).isNull();
+        verify(bookRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    @DisplayName("Should look books up by isbn and cap the number of keys")
+    void shouldFindAllByIsbn() {
+        // Given
+        when(bookRepository.findByIsbnIn(any())).thenReturn(singletonList(getRepositoryBook()));
+        List<String> tooMany = Collections.nCopies(BookLookupResultDTO.MAX_KEYS + 1, "123");
+
+        // When
+        List<BookLookupResultDTO> results = bookService.findAllByIsbn(Arrays.asList("999", "123"));
+        Throwable exception = catchThrowable(() -> bookService.findAllByIsbn(tooMany));
+
+        // Then
+        assertThat(results).extracting(BookLookupResultDTO::getIsbn, BookLookupResultDTO::getStatus).containsExactly(
+                tuple("999", BookLookupResultDTO.Status.NOT_FOUND),
+                tuple("123", BookLookupResultDTO.Status.FOUND));
+        assertThat(results.get(1).getBook().getId()).isEqualTo(1L);
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasFieldOrPropertyWithValue("statusCode", 400);
+    }
+
     @Test
     @DisplayName("Should delete a book")
     void ShouldDeleteBook() {
@@ -140,6 +252,24 @@ class BookServiceTest {
         verify(bookRepository, times(1)).delete(entity);
     }
 
+    @Test
+    @DisplayName("Should keep the search index in sync with saves and deletes")
+    void shouldSearchSavedBooks() {
+        // Given
+        Book entity = getRepositoryBook();
+        when(bookRepository.save(any(Book.class))).thenReturn(entity);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(entity));
+
+        // When
+        bookService.save(getBookDTO());
+        List<BookDTO> found = bookService.search("alcatea", PageRequest.of(0, 10)).getContent();
+        bookService.delete(1L);
+
+        // Then
+        assertThat(found).extracting(BookDTO::getId).containsExactly(1L);
+        assertThat(bookService.search("alcateia", PageRequest.of(0, 10))).isEmpty();
+    }
+
     @Test
     @DisplayName("Should not delete a book - id null")
     void ShouldNotDeleteBook() {
@@ -175,6 +305,46 @@ class BookServiceTest {
         assertThat(updated.getIsbn()).isEqualTo(bookDTO.getIsbn());
     }
 
+    @Test
+    @DisplayName("Should not update a book changed since the version the client read")
+    void shouldNotUpdateChangedBook() {
+        BookDTO bookDTO = getBookDTO();
+        bookDTO.setId(1L);
+        bookDTO.setVersion(3L);
+
+        Book entity = getRepositoryBook();
+        entity.setVersion(4L);
+        when(bookRepository.findById(any())).thenReturn(Optional.of(entity));
+
+        Throwable exception = catchThrowable(() -> bookService.update(bookDTO));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Book was changed by another request")
+                .hasFieldOrPropertyWithValue("statusCode", 412);
+
+        verify(bookRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should report a concurrent update as a failed precondition")
+    void shouldReportConcurrentUpdate() {
+        BookDTO bookDTO = getBookDTO();
+        bookDTO.setId(1L);
+        bookDTO.setVersion(4L);
+
+        Book entity = getRepositoryBook();
+        entity.setVersion(4L);
+        when(bookRepository.findById(any())).thenReturn(Optional.of(entity));
+        doThrow(new ObjectOptimisticLockingFailureException(Book.class, 1L)).when(bookRepository).flush();
+
+        Throwable exception = catchThrowable(() -> bookService.update(bookDTO));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasFieldOrPropertyWithValue("statusCode", 412);
+    }
+
     @Test
     @DisplayName("Should not update a book")
     void ShouldNotUpdateBook() {
@@ -199,13 +369,13 @@ class BookServiceTest {
         PageRequest pageRequest = PageRequest.of(0, 10);
 
         Book repositoryBook = getRepositoryBook();
-        PageImpl<Book> books = new PageImpl<>(singletonList(repositoryBook), pageRequest, 1);
+        SliceImpl<Book> books = new SliceImpl<>(singletonList(repositoryBook), pageRequest, false);
 
         BookDTO bookDTO = BookDTO.builder()
                 .author(repositoryBook.getAuthor())
                 .build();
 
-        when(bookRepository.findAll(any(), eq(pageRequest))).thenReturn(books);
+        when(bookRepository.findSliceByExample(any(), eq(pageRequest))).thenReturn(books);
 
         // When
         Page<BookDTO> bookDTOS = bookService.find(bookDTO, pageRequest);
@@ -213,6 +383,63 @@ class BookServiceTest {
         assertThat(bookDTOS.getTotalElements()).isEqualTo(1);
         assertThat(bookDTOS.getSize()).isEqualTo(10);
         assertThat(bookDTOS.getContent().get(0).getAuthor()).isEqualTo(repositoryBook.getAuthor());
+        verify(bookRepository, never()).count(any());
+    }
+
+    @Test
+    @DisplayName("Should reuse the cached total for the same search")
+    void ShouldReuseCachedCount() {
+        // Given
+        PageRequest pageRequest = PageRequest.of(0, 1);
+
+        Book repositoryBook = getRepositoryBook();
+        SliceImpl<Book> books = new SliceImpl<>(singletonList(repositoryBook), pageRequest, true);
+
+        BookDTO bookDTO = BookDTO.builder()
+                .author(repositoryBook.getAuthor())
+                .build();
+
+        when(bookRepository.findSliceByExample(any(), eq(pageRequest))).thenReturn(books);
+        when(bookRepository.count(any())).thenReturn(42L);
+
+        // When
+        bookService.find(bookDTO, pageRequest);
+        Page<BookDTO> bookDTOS = bookService.find(bookDTO, pageRequest);
+
+        // Then
+        assertThat(bookDTOS.getTotalElements()).isEqualTo(42);
+        verify(bookRepository, times(1)).count(any());
+    }
+
+    @Test
+    @DisplayName("Should get a slice of books after a cursor")
+    void ShouldGetBooksAfterCursor() {
+        // Given
+        Book first = getRepositoryBook();
+        Book second = getRepositoryBook();
+        second.setId(2L);
+
+        when(bookRepository.findByExampleAfter(any(), any(KeysetCursor.class), eq(2)))
+                .thenReturn(Arrays.asList(first, second));
+
+        // When
+        CursorSliceDTO<BookDTO> slice = bookService.findAfter(new BookDTO(), KeysetCursor.first(), 1);
+
+        // Then
+        assertThat(slice.getContent()).hasSize(1);
+        assertThat(slice.isHasNext()).isTrue();
+        assertThat(KeysetCursor.decode(slice.getNextCursor()).getId()).isEqualTo(1L);
+
+        verify(bookRepository, never()).count(any());
+    }
+
+    @Test
+    @DisplayName("Should not get a slice of books bigger than the limit")
+    void ShouldNotGetBooksAfterCursorTooBig() {
+        Throwable exception = catchThrowable(() ->
+                bookService.findAfter(new BookDTO(), KeysetCursor.first(), CursorSliceDTO.MAX_SIZE + 1));
+
+        assertThat(exception).isInstanceOf(BusinessException.class);
     }
 
     @Test
@@ -0,0 +1,90 @@
+package com.jonathanfrosto.tdd.services;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.ExportFormat;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.mappers.BookMapper;
+import com.jonathanfrosto.tdd.domain.mappers.LoanMapper;
+import com.jonathanfrosto.tdd.repositories.BookRepository;
+import com.jonathanfrosto.tdd.repositories.LoanRepository;
+import com.jonathanfrosto.tdd.services.impl.ExportServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExportServiceTest {
+
+    BookRepository bookRepository;
+    LoanRepository loanRepository;
+
+    ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        loanRepository = mock(LoanRepository.class);
+
+        ObjectMapper objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        exportService = new ExportServiceImpl(bookRepository, loanRepository,
+                new BookMapper(), new LoanMapper(), objectMapper, 100);
+    }
+
+    @Test
+    @DisplayName("Should write one json document per book and close the cursor")
+    void shouldExportBooksAsNdjson() throws Exception {
+        // Given
+        AtomicBoolean closed = new AtomicBoolean();
+        when(bookRepository.streamByExample(any(), eq(100))).thenReturn(Stream.of(
+                Book.builder().id(1L).name("A alcateia").isbn("123").author("Jonathan").build(),
+                Book.builder().id(2L).name("Other").isbn("456").author("Jonathan").build())
+                .onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        exportService.exportBooks(BookDTO.builder().author("Jonathan").build(), ExportFormat.NDJSON, out);
+
+        // Then
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"id\":1,\"name\":\"A alcateia\",\"isbn\":\"123\",\"author\":\"Jonathan\"}\n" +
+                "{\"id\":2,\"name\":\"Other\",\"isbn\":\"456\",\"author\":\"Jonathan\"}\n");
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should write loans as csv quoting values that need it")
+    void shouldExportLoansAsCsv() throws Exception {
+        // Given
+        LocalDate today = LocalDate.of(2021, 5, 1);
+        when(loanRepository.streamByExample(any(), eq(100))).thenReturn(Stream.of(
+                new LoanDTO(1L, "123", "Doe, John", today, false),
+                new LoanDTO(2L, null, "The \"reader\"", today, true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        exportService.exportLoans(new LoanFilterDTO(), ExportFormat.CSV, out);
+
+        // Then
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,isbn,customer,loanDate,returned\n" +
+                "1,123,\"Doe, John\",2021-05-01,false\n" +
+                "2,,\"The \"\"reader\"\"\",2021-05-01,true\n");
+    }
+}
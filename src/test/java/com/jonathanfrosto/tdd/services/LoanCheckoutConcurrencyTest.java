@@ -0,0 +1,91 @@
+package com.jonathanfrosto.tdd.services;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.repositories.LoanRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class LoanCheckoutConcurrencyTest {
+
+    private static final int BOOKS = 20;
+    private static final int DESKS = 8;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Test
+    @DisplayName("Only one of many concurrent checkouts of a book should succeed")
+    void concurrentCheckout() throws Exception {
+        // Given
+        List<BookDTO> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(bookService.save(BookDTO.builder()
+                    .name("Book " + i)
+                    .author("Jonathan Anthony")
+                    .isbn("concurrent-" + i)
+                    .build()));
+        }
+
+        ExecutorService desks = Executors.newFixedThreadPool(DESKS);
+        AtomicInteger loaned = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        // When
+        try {
+            for (BookDTO book : books) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> checkouts = new ArrayList<>();
+                for (int desk = 0; desk < DESKS; desk++) {
+                    String customer = "desk-" + desk;
+                    checkouts.add(desks.submit(() -> {
+                        start.await();
+                        try {
+                            loanService.save(LoanDTO.builder().isbn(book.getIsbn()).customer(customer).build());
+                            loaned.incrementAndGet();
+                        } catch (BusinessException e) {
+                            assertThat(e.getStatusCode()).isEqualTo(409);
+                            conflicts.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> checkout : checkouts) {
+                    checkout.get(30, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            desks.shutdownNow();
+        }
+
+        // Then
+        assertThat(loaned).hasValue(BOOKS);
+        assertThat(conflicts).hasValue(BOOKS * (DESKS - 1));
+        for (BookDTO book : books) {
+            assertThat(loanRepository.countByBookId(book.getId())).isEqualTo(1);
+        }
+    }
+}
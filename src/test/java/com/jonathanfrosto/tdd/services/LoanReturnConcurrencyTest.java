@@ -0,0 +1,88 @@
+package com.jonathanfrosto.tdd.services;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.services.availability.BookAvailabilityIndex;
+import com.jonathanfrosto.tdd.services.stats.LoanStatsCollector;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class LoanReturnConcurrencyTest {
+
+    private static final int BOOKS = 20;
+    private static final int DESKS = 8;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    LoanService loanService;
+
+    @SpyBean
+    BookAvailabilityIndex bookAvailabilityIndex;
+
+    @SpyBean
+    LoanStatsCollector loanStatsCollector;
+
+    @Test
+    @DisplayName("Only one of many concurrent returns of a loan should free its book and count as a return")
+    void concurrentReturn() throws Exception {
+        // Given
+        List<BookDTO> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(bookService.save(BookDTO.builder()
+                    .name("Book " + i)
+                    .author("Jonathan Anthony")
+                    .isbn("returned-" + i)
+                    .build()));
+        }
+
+        ExecutorService desks = Executors.newFixedThreadPool(DESKS);
+
+        // When
+        try {
+            for (BookDTO book : books) {
+                LoanDTO loan = loanService.save(LoanDTO.builder().isbn(book.getIsbn()).customer("first").build());
+
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> returns = new ArrayList<>();
+                for (int desk = 0; desk < DESKS; desk++) {
+                    returns.add(desks.submit(() -> {
+                        start.await();
+                        loanService.giveBackBook(loan.getId());
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> giveBack : returns) {
+                    giveBack.get(30, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            desks.shutdownNow();
+        }
+
+        // Then
+        // a second free of the book could land after the book was loaned again
+        for (BookDTO book : books) {
+            verify(bookAvailabilityIndex, times(1)).markReturned(book.getId());
+        }
+        verify(loanStatsCollector, times(BOOKS)).recordReturns(1);
+    }
+}
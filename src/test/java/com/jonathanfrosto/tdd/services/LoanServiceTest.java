@@ -1,29 +1,52 @@
 package com.jonathanfrosto.tdd.services;
 
 import com.jonathanfrosto.tdd.TestConfig;
+import com.jonathanfrosto.tdd.domain.dto.BookAvailabilityDTO;
+import com.jonathanfrosto.tdd.domain.dto.CursorSliceDTO;
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.dto.LoanCheckoutResultDTO;
 import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
 import com.jonathanfrosto.tdd.domain.dto.LoanFilterDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanReturnDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanReturnResultDTO;
 import com.jonathanfrosto.tdd.domain.entities.Book;
 import com.jonathanfrosto.tdd.domain.entities.Loan;
+import com.jonathanfrosto.tdd.domain.mappers.LoanMapper;
 import com.jonathanfrosto.tdd.exceptions.BusinessException;
 import com.jonathanfrosto.tdd.repositories.BookRepository;
 import com.jonathanfrosto.tdd.repositories.LoanRepository;
+import com.jonathanfrosto.tdd.services.availability.BookAvailabilityIndex;
+import com.jonathanfrosto.tdd.services.cache.BookIsbnCache;
+import com.jonathanfrosto.tdd.services.cache.CountCache;
 import com.jonathanfrosto.tdd.services.impl.LoanServiceImpl;
+import com.jonathanfrosto.tdd.services.overdue.OverduePolicy;
+import com.jonathanfrosto.tdd.services.stats.LoanStatsCollector;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.modelmapper.ModelMapper;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 import java.util.Optional;
 
 import static java.util.Collections.singletonList;
@@ -47,11 +70,22 @@ class LoanServiceTest {
     @Autowired
     BookRepository bookRepository;
 
+    @Autowired
+    BookIsbnCache bookIsbnCache;
+
+    @Autowired
+    CountCache countCache;
+
+    @Autowired
+    BookAvailabilityIndex bookAvailabilityIndex;
+
+    @Autowired
+    LoanStatsCollector loanStatsCollector;
 
     @TestConfiguration
     static class testConfiguration {
         @Autowired
-        ModelMapper modelMapper;
+        LoanMapper loanMapper;
 
         @MockBean
         LoanRepository loanRepository;
@@ -60,19 +94,49 @@ class LoanServiceTest {
         BookRepository bookRepository;
 
         @Bean
-        LoanService getService() {
-            return new LoanServiceImpl(modelMapper, loanRepository, bookRepository);
+        BookIsbnCache getBookIsbnCache() {
+            return new BookIsbnCache(bookRepository, 100, Duration.ofMinutes(10), Duration.ofSeconds(30));
+        }
+
+        @Bean
+        CountCache getCountCache() {
+            return new CountCache(100, Duration.ofSeconds(30));
+        }
+
+        @Bean
+        BookAvailabilityIndex getBookAvailabilityIndex() {
+            return new BookAvailabilityIndex(loanRepository, 100);
+        }
+
+        @Bean
+        LoanStatsCollector getLoanStatsCollector() {
+            return new LoanStatsCollector();
+        }
+
+        @Bean
+        LoanService getService(BookIsbnCache bookIsbnCache, CountCache countCache,
+                               BookAvailabilityIndex bookAvailabilityIndex, LoanStatsCollector loanStatsCollector) {
+            return new LoanServiceImpl(loanMapper, loanRepository, bookIsbnCache, countCache,
+                    new OverduePolicy(Period.ofDays(14)), bookAvailabilityIndex, loanStatsCollector);
         }
     }
 
+    @BeforeEach
+    void clearCache() {
+        bookIsbnCache.invalidateAll();
+        countCache.invalidateAll();
+        when(loanRepository.streamOpenBookIds(anyInt())).thenReturn(Stream.empty());
+        bookAvailabilityIndex.rebuild();
+    }
+
     @Test
     @DisplayName("Should save a loan")
     void shouldSaveLoan() {
         // Given
-        when(bookRepository.findByIsbn(any(String.class))).thenReturn(Optional.of(new Book()));
+        when(bookRepository.findByIsbn(any(String.class))).thenReturn(Optional.of(Book.builder().id(7L).build()));
 
         Loan savedLoan = Loan.builder().id(1L).build();
-        when(loanRepository.save(any(Loan.class))).thenReturn(savedLoan);
+        when(loanRepository.saveAndFlush(any(Loan.class))).thenReturn(savedLoan);
 
         LoanDTO loanDTO = getLoanDTO();
 
@@ -81,6 +145,8 @@ class LoanServiceTest {
 
         // Then
         assertThat(response.getId()).isEqualTo(savedLoan.getId());
+        assertThat(bookAvailabilityIndex.isLoaned(7L)).isTrue();
+        assertThat(loanStatsCollector.snapshot().getLoansByBook()).containsKey(7L);
     }
 
     @Test
@@ -90,7 +156,8 @@ class LoanServiceTest {
         LoanDTO loanDTO = getLoanDTO();
 
         when(bookRepository.findByIsbn(any(String.class))).thenReturn(Optional.of(new Book()));
-        when(loanRepository.existsByBookAndReturnedFalse(any(Book.class))).thenReturn(true);
+        when(loanRepository.saveAndFlush(any(Loan.class))).thenThrow(new DataIntegrityViolationException("duplicated",
+                new ConstraintViolationException("duplicated", new SQLException(), "PUBLIC.UX_LOAN_ACTIVE_BOOK_INDEX_2")));
 
         // When
         Throwable exception = catchThrowable(() -> loanService.save(loanDTO));
@@ -99,6 +166,62 @@ class LoanServiceTest {
         assertThat(exception)
                 .isInstanceOf(BusinessException.class)
                 .hasMessage("Book already loaned");
+        verify(loanRepository, never()).existsByBookAndReturnedFalse(any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Should not hide other integrity violations as a conflict")
+    void shouldRethrowOtherIntegrityViolations() {
+        // Given
+        LoanDTO loanDTO = getLoanDTO();
+
+        when(bookRepository.findByIsbn(any(String.class))).thenReturn(Optional.of(new Book()));
+        when(loanRepository.saveAndFlush(any(Loan.class))).thenThrow(new DataIntegrityViolationException("fk",
+                new ConstraintViolationException("fk", new SQLException(), "PUBLIC.FK_LOAN_BOOK")));
+
+        // When
+        Throwable exception = catchThrowable(() -> loanService.save(loanDTO));
+
+        // Then
+        assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @DisplayName("Should save a batch of loans answering each checkout on its own")
+    void shouldSaveLoanBatch() {
+        // Given
+        for (String isbn : Arrays.asList("loaned", "free")) {
+            when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.of(Book.builder().id(1L).isbn(isbn).build()));
+        }
+        when(bookRepository.findByIsbn("missing")).thenReturn(Optional.empty());
+
+        LoanRepository.LoanStatus open = mock(LoanRepository.LoanStatus.class);
+        when(open.getIsbn()).thenReturn("loaned");
+        when(loanRepository.findOpenByIsbnIn(any())).thenReturn(singletonList(open));
+        when(loanRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            loans.forEach(loan -> loan.setId(10L));
+            return loans;
+        });
+
+        List<LoanDTO> loans = Arrays.asList(
+                LoanDTO.builder().isbn("free").customer("first").build(),
+                LoanDTO.builder().isbn("loaned").customer("second").build(),
+                LoanDTO.builder().isbn("free").customer("third").build(),
+                LoanDTO.builder().isbn("missing").customer("fourth").build());
+
+        // When
+        List<LoanCheckoutResultDTO> results = loanService.saveAll(loans);
+
+        // Then
+        assertThat(results).extracting(LoanCheckoutResultDTO::getStatus).containsExactly(
+                LoanCheckoutResultDTO.Status.CREATED,
+                LoanCheckoutResultDTO.Status.ALREADY_LOANED,
+                LoanCheckoutResultDTO.Status.ALREADY_LOANED,
+                LoanCheckoutResultDTO.Status.BOOK_NOT_FOUND);
+        assertThat(results.get(0).getLoan().getId()).isEqualTo(10L);
+        assertThat(results.get(0).getLoan().getCustomer()).isEqualTo("first");
+        verify(loanRepository).flush();
     }
 
     @Test
@@ -107,12 +230,35 @@ class LoanServiceTest {
         // Given
         Long id = 1L;
 
-        Loan entity = Loan.builder().id(id).build();
+        Loan entity = Loan.builder().id(id).book(Book.builder().id(7L).build()).build();
         when(loanRepository.findById(id)).thenReturn(Optional.of(entity));
+        when(loanRepository.markReturned(singletonList(id))).thenReturn(1);
+        bookAvailabilityIndex.markLoaned(7L);
+        long returns = returnsToday();
 
         // Then
         assertDoesNotThrow(() -> loanService.giveBackBook(id));
-        verify(loanRepository, times(1)).save(entity);
+        verify(loanRepository, times(1)).markReturned(singletonList(id));
+        assertThat(bookAvailabilityIndex.isLoaned(7L)).isFalse();
+        assertThat(returnsToday()).isEqualTo(returns + 1);
+    }
+
+    @Test
+    @DisplayName("Should keep the book loaned and count no return when giving back an already closed loan")
+    void shouldKeepBookLoanedOnClosedLoan() {
+        // Given
+        Loan closed = Loan.builder().id(1L).book(Book.builder().id(7L).build()).returned(true).build();
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(closed));
+        when(loanRepository.markReturned(singletonList(1L))).thenReturn(0);
+        bookAvailabilityIndex.markLoaned(7L);
+        long returns = returnsToday();
+
+        // When
+        loanService.giveBackBook(1L);
+
+        // Then
+        assertThat(bookAvailabilityIndex.isLoaned(7L)).isTrue();
+        assertThat(returnsToday()).isEqualTo(returns);
     }
 
     @Test
@@ -134,14 +280,14 @@ class LoanServiceTest {
 
         PageRequest pageRequest = PageRequest.of(0, 10);
 
-        Loan loanEntity = Loan.builder()
+        LoanDTO loan = LoanDTO.builder()
                 .id(1L)
                 .customer(loanFilterDTO.getCustomer())
                 .build();
 
-        PageImpl<Loan> loans = new PageImpl<>(singletonList(loanEntity), pageRequest, 1);
+        SliceImpl<LoanDTO> loans = new SliceImpl<>(singletonList(loan), pageRequest, false);
 
-        when(loanRepository.findAll(any(), eq(pageRequest))).thenReturn(loans);
+        when(loanRepository.findSliceByExample(any(), eq(pageRequest))).thenReturn(loans);
 
         // When
         Page<LoanDTO> loanDTOS = loanService.find(loanFilterDTO, pageRequest);
@@ -151,7 +297,188 @@ class LoanServiceTest {
         assertThat(loanDTOS.getContent().get(0).getCustomer()).isEqualTo(loanFilterDTO.getCustomer());
     }
 
+    @Test
+    @DisplayName("Should get a slice of loans after a cursor")
+    void ShouldGetLoansAfterCursor() {
+        // Given
+        LocalDate loanDate = LocalDate.of(2021, 5, 1);
+        LoanDTO first = LoanDTO.builder().id(1L).customer("jonathan").loanDate(loanDate).build();
+        LoanDTO second = LoanDTO.builder().id(2L).customer("jonathan").loanDate(loanDate).build();
+
+        when(loanRepository.findByExampleAfter(any(), any(KeysetCursor.class), eq(2)))
+                .thenReturn(Arrays.asList(first, second));
+
+        // When
+        CursorSliceDTO<LoanDTO> slice = loanService.findAfter(new LoanFilterDTO(), KeysetCursor.first(), 1);
+
+        // Then
+        assertThat(slice.getContent()).extracting(LoanDTO::getId).containsExactly(1L);
+        assertThat(slice.isHasNext()).isTrue();
+
+        KeysetCursor next = KeysetCursor.decode(slice.getNextCursor());
+        assertThat(next.getDate()).isEqualTo(loanDate);
+        assertThat(next.getId()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Should not get loans after a cursor without a loan date")
+    void ShouldNotGetLoansAfterIdOnlyCursor() {
+        Throwable exception = catchThrowable(() ->
+                loanService.findAfter(new LoanFilterDTO(), KeysetCursor.after(42L), 2));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Invalid cursor");
+        verify(loanRepository, never()).findByExampleAfter(any(), any(KeysetCursor.class), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should get the last slice of loans of a book")
+    void ShouldGetLoansOfBookAfterCursor() {
+        LoanDTO loan = LoanDTO.builder().id(3L).loanDate(LocalDate.now()).build();
+
+        when(loanRepository.findByBookIdAfter(eq(1L), any(KeysetCursor.class), eq(11)))
+                .thenReturn(singletonList(loan));
+
+        CursorSliceDTO<LoanDTO> slice = loanService.findByBookAfter(1L, KeysetCursor.after(LocalDate.now(), 2L), 10);
+
+        assertThat(slice.getContent()).hasSize(1);
+        assertThat(slice.isHasNext()).isFalse();
+        assertThat(slice.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should get a slice of the open loans of a customer")
+    void ShouldGetLoansOfCustomerAfterCursor() {
+        LoanDTO loan = LoanDTO.builder().id(3L).customer("jonathan").loanDate(LocalDate.now()).build();
+
+        when(loanRepository.findByCustomerAfter(eq("jonathan"), eq(false), any(KeysetCursor.class), eq(21)))
+                .thenReturn(singletonList(loan));
+
+        CursorSliceDTO<LoanDTO> slice = loanService.findByCustomerAfter("jonathan", false, KeysetCursor.first(), 20);
+
+        assertThat(slice.getContent()).extracting(LoanDTO::getId).containsExactly(3L);
+        assertThat(slice.isHasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should get the open loans made before the loan period")
+    void ShouldGetOverdueLoans() {
+        LoanDTO loan = LoanDTO.builder().id(3L).loanDate(LocalDate.now().minusDays(20)).build();
+
+        when(loanRepository.findOpenBetween(isNull(), eq(LocalDate.now().minusDays(14)), any(KeysetCursor.class), eq(11)))
+                .thenReturn(singletonList(loan));
+
+        CursorSliceDTO<LoanDTO> slice = loanService.findOverdueAfter(KeysetCursor.first(), 10);
+
+        assertThat(slice.getContent()).extracting(LoanDTO::getId).containsExactly(3L);
+        assertThat(slice.isHasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should give back many loans with a single update")
+    void shouldGiveBackBooks() {
+        // Given
+        LoanReturnDTO request = LoanReturnDTO.builder()
+                .ids(Arrays.asList(1L, 2L, 3L, 1L))
+                .isbns(Arrays.asList("123", "456"))
+                .build();
+
+        when(loanRepository.findStatusByIdIn(any()))
+                .thenReturn(Arrays.asList(getLoanStatus(1L, 11L, "111", false), getLoanStatus(2L, 22L, "222", true)));
+        when(loanRepository.findOpenByIsbnIn(any()))
+                .thenReturn(singletonList(getLoanStatus(4L, 44L, "123", false)));
+        when(loanRepository.lockOpenByIdIn(any()))
+                .thenReturn(Arrays.asList(getLoanStatus(1L, 11L, null, false), getLoanStatus(4L, 44L, null, false)));
+        bookAvailabilityIndex.markLoaned(Arrays.asList(11L, 44L));
+
+        // When
+        LoanReturnResultDTO result = loanService.giveBackBooks(request);
+
+        // Then
+        assertThat(result.getReturned()).containsExactly(1L, 4L);
+        assertThat(result.getAlreadyReturned()).containsExactly(2L);
+        assertThat(result.getNotFound()).containsExactly(3L);
+        assertThat(result.getNotLoaned()).containsExactly("456");
+        verify(loanRepository, times(1)).markReturned(Arrays.asList(1L, 4L));
+        verify(loanRepository, never()).save(any(Loan.class));
+        assertThat(bookAvailabilityIndex.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should not free the book of a loan closed while giving back many loans")
+    void shouldSkipLoanClosedMeanwhile() {
+        // Given
+        LoanReturnDTO request = LoanReturnDTO.builder().ids(Arrays.asList(1L, 2L)).build();
+
+        when(loanRepository.findStatusByIdIn(any()))
+                .thenReturn(Arrays.asList(getLoanStatus(1L, 11L, "111", false), getLoanStatus(2L, 22L, "222", false)));
+        when(loanRepository.lockOpenByIdIn(any())).thenReturn(singletonList(getLoanStatus(1L, 11L, null, false)));
+        when(loanRepository.markReturned(any())).thenReturn(1);
+        // loan 2 was closed and its book loaned again
+        bookAvailabilityIndex.markLoaned(Arrays.asList(11L, 22L));
+
+        // When
+        LoanReturnResultDTO result = loanService.giveBackBooks(request);
+
+        // Then
+        assertThat(result.getReturned()).containsExactly(1L);
+        assertThat(result.getAlreadyReturned()).containsExactly(2L);
+        verify(loanRepository, times(1)).markReturned(singletonList(1L));
+        assertThat(bookAvailabilityIndex.isLoaned(11L)).isFalse();
+        assertThat(bookAvailabilityIndex.isLoaned(22L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should answer availability from the index and cap the number of ids")
+    void shouldFindAvailability() {
+        // Given
+        bookAvailabilityIndex.markLoaned(2L);
+        List<Long> tooMany = LongStream.rangeClosed(1, BookAvailabilityDTO.MAX_IDS + 1).boxed()
+                .collect(Collectors.toList());
+
+        // When
+        BookAvailabilityDTO availability = loanService.findAvailability(Arrays.asList(1L, 2L, 3L));
+        Throwable exception = catchThrowable(() -> loanService.findAvailability(tooMany));
+
+        // Then
+        assertThat(availability.getAvailable()).containsExactly(1L, 3L);
+        assertThat(availability.getLoaned()).containsExactly(2L);
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("At most " + BookAvailabilityDTO.MAX_IDS + " ids are allowed");
+    }
+
+    private LoanRepository.LoanStatus getLoanStatus(Long id, Long bookId, String isbn, boolean returned) {
+        return new LoanRepository.LoanStatus() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getBookId() {
+                return bookId;
+            }
+
+            @Override
+            public String getIsbn() {
+                return isbn;
+            }
+
+            @Override
+            public boolean isReturned() {
+                return returned;
+            }
+        };
+    }
+
     private LoanDTO getLoanDTO() {
         return LoanDTO.builder().isbn("123").customer("jonathan").build();
     }
+
+    private long returnsToday() {
+        long[] counts = loanStatsCollector.snapshot().getCountsByDay().get(LocalDate.now());
+        return counts == null ? 0 : counts[1];
+    }
 }
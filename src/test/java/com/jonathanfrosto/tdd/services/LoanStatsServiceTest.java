@@ -0,0 +1,90 @@
+package com.jonathanfrosto.tdd.services;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.dto.BookLoanStatsDTO;
+import com.jonathanfrosto.tdd.domain.dto.DailyLoanStatsDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanStatsDTO;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "stats.flush.enabled=false")
+class LoanStatsServiceTest {
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    LoanStatsService loanStatsService;
+
+    @Test
+    @DisplayName("Should add the counted checkouts and returns to the stats on a flush")
+    void shouldFlushStats() {
+        // Given
+        BookDTO popular = bookService.save(BookDTO.builder().name("Popular").author("Jonathan").isbn("stats-1").build());
+        BookDTO other = bookService.save(BookDTO.builder().name("Other").author("Jonathan").isbn("stats-2").build());
+
+        loanStatsService.flush();
+        LoanStatsDTO before = loanStatsService.findDaily(null, null);
+
+        LoanDTO first = loanService.save(LoanDTO.builder().isbn("stats-1").customer("Person").build());
+        loanService.giveBackBook(first.getId());
+        loanService.giveBackBook(first.getId());
+        loanService.save(LoanDTO.builder().isbn("stats-1").customer("Person").build());
+        loanService.save(LoanDTO.builder().isbn("stats-2").customer("Person").build());
+
+        // When
+        loanStatsService.flush();
+
+        // Then
+        assertThat(loanStatsService.findTopBooks(BookLoanStatsDTO.MAX_SIZE))
+                .filteredOn(book -> book.getBookId().equals(popular.getId()) || book.getBookId().equals(other.getId()))
+                .extracting(BookLoanStatsDTO::getIsbn, BookLoanStatsDTO::getLoans)
+                .containsExactly(
+                        tuple("stats-1", 2L),
+                        tuple("stats-2", 1L));
+
+        LoanStatsDTO after = loanStatsService.findDaily(null, null);
+        assertThat(after.getActive() - before.getActive()).isEqualTo(2);
+        assertThat(today(after).getCheckouts() - today(before).getCheckouts()).isEqualTo(3);
+        assertThat(today(after).getReturns() - today(before).getReturns()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not get stats for a period out of bounds")
+    void shouldNotGetStatsOutOfBounds() {
+        LocalDate today = LocalDate.now();
+
+        assertThat(catchThrowable(() -> loanStatsService.findDaily(today, today.minusDays(1))))
+                .isInstanceOf(BusinessException.class);
+        assertThat(catchThrowable(() -> loanStatsService.findDaily(today.minusDays(LoanStatsDTO.MAX_DAYS), today)))
+                .isInstanceOf(BusinessException.class);
+        assertThat(catchThrowable(() -> loanStatsService.findTopBooks(BookLoanStatsDTO.MAX_SIZE + 1)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Size must be between 1 and " + BookLoanStatsDTO.MAX_SIZE);
+    }
+
+    private static DailyLoanStatsDTO today(LoanStatsDTO stats) {
+        return stats.getDays().stream()
+                .filter(day -> day.getDate().equals(LocalDate.now()))
+                .findFirst()
+                .orElseGet(() -> DailyLoanStatsDTO.builder().date(LocalDate.now()).build());
+    }
+}
@@ -0,0 +1,85 @@
+package com.jonathanfrosto.tdd.services.availability;
+
+import com.jonathanfrosto.tdd.domain.dto.BookAvailabilityDTO;
+import com.jonathanfrosto.tdd.repositories.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookAvailabilityIndexTest {
+
+    LoanRepository loanRepository;
+    BookAvailabilityIndex bookAvailabilityIndex;
+
+    @BeforeEach
+    void setUp() {
+        loanRepository = mock(LoanRepository.class);
+        bookAvailabilityIndex = new BookAvailabilityIndex(loanRepository, 100);
+    }
+
+    @Test
+    @DisplayName("Should split ids into available and loaned books keeping their order")
+    void shouldAnswerAvailability() {
+        // Given
+        long timeOrderedId = 1L << 40;
+        bookAvailabilityIndex.markLoaned(Arrays.asList(2L, timeOrderedId, 5L));
+        bookAvailabilityIndex.markReturned(5L);
+
+        // When
+        BookAvailabilityDTO availability = bookAvailabilityIndex.availability(
+                Arrays.asList(timeOrderedId, 1L, 2L, 5L, 2L, null));
+
+        // Then
+        assertThat(availability.getAvailable()).containsExactly(1L, 5L);
+        assertThat(availability.getLoaned()).containsExactly(timeOrderedId, 2L);
+        assertThat(bookAvailabilityIndex.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should rebuild from the open loans and keep changes committed while reading them")
+    void shouldRebuild() {
+        // Given
+        bookAvailabilityIndex.markLoaned(Arrays.asList(1L, 3L));
+        when(loanRepository.streamOpenBookIds(anyInt())).thenReturn(Stream.of(1L, 2L).peek(id -> {
+            if (id == 2L) {
+                bookAvailabilityIndex.markReturned(1L);
+                bookAvailabilityIndex.markLoaned(4L);
+            }
+        }));
+
+        // When
+        bookAvailabilityIndex.rebuild();
+
+        // Then
+        assertThat(bookAvailabilityIndex.availability(Arrays.asList(1L, 2L, 3L, 4L)).getLoaned())
+                .containsExactly(2L, 4L);
+    }
+
+    @Test
+    @DisplayName("Should only apply changes once their transaction commits")
+    void shouldWaitForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            bookAvailabilityIndex.markLoaned(1L);
+
+            // Then
+            assertThat(bookAvailabilityIndex.isLoaned(1L)).isFalse();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(bookAvailabilityIndex.isLoaned(1L)).isTrue();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.jonathanfrosto.tdd.services.cache;
+
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.repositories.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class BookIsbnCacheTest {
+
+    BookRepository bookRepository;
+
+    AtomicLong nanos;
+
+    BookIsbnCache bookIsbnCache;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        nanos = new AtomicLong();
+        bookIsbnCache = new BookIsbnCache(bookRepository, 2, Duration.ofMinutes(10), Duration.ofSeconds(30), nanos::get);
+    }
+
+    @Test
+    @DisplayName("Should read through the repository only once per isbn")
+    void shouldCacheFoundBooks() {
+        when(bookRepository.findByIsbn("123")).thenReturn(Optional.of(getBook()));
+
+        Optional<Book> first = bookIsbnCache.findByIsbn("123");
+        Optional<Book> second = bookIsbnCache.findByIsbn("123");
+
+        assertThat(first).isPresent();
+        assertThat(second.get().getId()).isEqualTo(1L);
+        assertThat(second.get()).isNotSameAs(first.get());
+        assertThat(bookIsbnCache.stats().hitCount()).isEqualTo(1);
+        assertThat(bookIsbnCache.stats().missCount()).isEqualTo(1);
+
+        verify(bookRepository, times(1)).findByIsbn("123");
+    }
+
+    @Test
+    @DisplayName("Should cache misses for the negative ttl only")
+    void shouldCacheMisses() {
+        when(bookRepository.findByIsbn("123")).thenReturn(Optional.empty());
+
+        assertThat(bookIsbnCache.existsByIsbn("123")).isFalse();
+        assertThat(bookIsbnCache.existsByIsbn("123")).isFalse();
+        verify(bookRepository, times(1)).findByIsbn("123");
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+
+        assertThat(bookIsbnCache.existsByIsbn("123")).isFalse();
+        verify(bookRepository, times(2)).findByIsbn("123");
+    }
+
+    @Test
+    @DisplayName("Should reload an evicted isbn")
+    void shouldReloadEvictedIsbn() {
+        when(bookRepository.findByIsbn("123")).thenReturn(Optional.empty());
+        bookIsbnCache.findByIsbn("123");
+
+        bookIsbnCache.evict("123");
+        when(bookRepository.findByIsbn("123")).thenReturn(Optional.of(getBook()));
+
+        assertThat(bookIsbnCache.existsByIsbn("123")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should evict entries beyond the maximum size")
+    void shouldEvictBySize() {
+        when(bookRepository.findByIsbn(anyString())).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 10; i++) {
+            bookIsbnCache.findByIsbn(String.valueOf(i));
+        }
+        bookIsbnCache.cleanUp();
+
+        assertThat(bookIsbnCache.size()).isLessThanOrEqualTo(2);
+        assertThat(bookIsbnCache.stats().evictionCount()).isGreaterThan(0);
+    }
+
+    private Book getBook() {
+        return Book.builder()
+                .id(1L)
+                .name("A alcateia")
+                .author("Jonathan Anthony")
+                .isbn("123")
+                .build();
+    }
+}
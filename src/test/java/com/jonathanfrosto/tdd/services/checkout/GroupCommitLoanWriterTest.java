@@ -0,0 +1,290 @@
+package com.jonathanfrosto.tdd.services.checkout;
+
+import com.jonathanfrosto.tdd.domain.dto.LoanCheckoutResultDTO;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.services.LoanService;
+import com.jonathanfrosto.tdd.services.cache.BookIsbnCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class GroupCommitLoanWriterTest {
+
+    LoanService loanService = mock(LoanService.class);
+    BookIsbnCache bookIsbnCache = mock(BookIsbnCache.class);
+    ExecutorService callers = Executors.newCachedThreadPool();
+
+    GroupCommitLoanWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (writer != null && writer.isRunning()) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Should commit concurrent checkouts in one batch and answer each caller")
+    void shouldBatchCheckouts() throws Exception {
+        // Given
+        writer = start(10, 5);
+        when(loanService.saveAll(anyList())).thenAnswer(invocation -> {
+            List<LoanDTO> loans = invocation.getArgument(0);
+            return loans.stream().map(this::created).collect(Collectors.toList());
+        });
+
+        // When
+        List<Future<LoanDTO>> checkouts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            LoanDTO loan = loan("isbn-" + i);
+            checkouts.add(callers.submit(() -> writer.save(loan)));
+        }
+
+        // Then
+        for (int i = 0; i < 5; i++) {
+            assertThat(checkouts.get(i).get(5, TimeUnit.SECONDS).getIsbn()).isEqualTo("isbn-" + i);
+        }
+        verify(loanService, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should answer a checkout of a loaned book with a conflict")
+    void shouldRejectLoanedBook() {
+        // Given
+        writer = start(10, 1);
+        when(loanService.saveAll(anyList())).thenReturn(List.of(LoanCheckoutResultDTO.builder()
+                .isbn("123")
+                .status(LoanCheckoutResultDTO.Status.ALREADY_LOANED)
+                .message("Book already loaned")
+                .build()));
+
+        // When
+        Throwable exception = catchThrowable(() -> writer.save(loan("123")));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Book already loaned")
+                .hasFieldOrPropertyWithValue("statusCode", 409);
+    }
+
+    @Test
+    @DisplayName("Should not queue a checkout of an unknown book")
+    void shouldRejectUnknownBook() {
+        // Given
+        writer = start(10, 1);
+        when(bookIsbnCache.existsByIsbn("missing")).thenReturn(false);
+
+        // When
+        Throwable exception = catchThrowable(() -> writer.save(loan("missing")));
+
+        // Then
+        assertThat(exception).hasFieldOrPropertyWithValue("statusCode", 404);
+        verify(loanService, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should push back with 503 when the queue is full")
+    void shouldRejectWhenQueueIsFull() throws Exception {
+        // Given
+        MeterRegistry registry = new SimpleMeterRegistry();
+        writer = start(1, 1, registry);
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(loanService.saveAll(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            List<LoanDTO> loans = invocation.getArgument(0);
+            return loans.stream().map(this::created).collect(Collectors.toList());
+        });
+
+        Future<LoanDTO> inBatch = callers.submit(() -> writer.save(loan("1")));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<LoanDTO> queued = callers.submit(() -> writer.save(loan("2")));
+        while (registry.get("loan.group-commit.queue").gauge().value() < 1) {
+            Thread.sleep(1);
+        }
+
+        // When
+        Throwable exception = catchThrowable(() -> writer.save(loan("3")));
+        release.countDown();
+
+        // Then
+        assertThat(exception).hasFieldOrPropertyWithValue("statusCode", 503);
+        assertThat(inBatch.get(5, TimeUnit.SECONDS).getIsbn()).isEqualTo("1");
+        assertThat(queued.get(5, TimeUnit.SECONDS).getIsbn()).isEqualTo("2");
+    }
+
+    @Test
+    @DisplayName("Should write the checkouts one by one when the batch fails")
+    void shouldFallBackToSingleWrites() throws Exception {
+        // Given
+        writer = start(10, 2);
+        when(loanService.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("ux_loan_active_book"));
+        when(loanService.save(any())).thenAnswer(invocation -> {
+            LoanDTO loan = invocation.getArgument(0);
+            if (loan.getIsbn().equals("raced")) {
+                throw new BusinessException("Book already loaned", 409);
+            }
+            return loan;
+        });
+
+        // When
+        Future<LoanDTO> free = callers.submit(() -> writer.save(loan("free")));
+        Throwable exception = catchThrowable(() -> writer.save(loan("raced")));
+
+        // Then
+        assertThat(free.get(5, TimeUnit.SECONDS).getIsbn()).isEqualTo("free");
+        assertThat(exception).hasFieldOrPropertyWithValue("statusCode", 409);
+        verify(loanService, times(2)).save(any());
+    }
+
+    @Test
+    @DisplayName("Should answer a checkout already in a batch even after the caller timeout")
+    void shouldWaitForClaimedCheckout() throws Exception {
+        // Given
+        writer = start(10, 1, new SimpleMeterRegistry(), Duration.ofMillis(500));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(loanService.saveAll(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            List<LoanDTO> loans = invocation.getArgument(0);
+            return loans.stream().map(this::created).collect(Collectors.toList());
+        });
+
+        // When
+        Future<LoanDTO> checkout = callers.submit(() -> writer.save(loan("123")));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(700);
+        release.countDown();
+
+        // Then
+        assertThat(checkout.get(5, TimeUnit.SECONDS).getIsbn()).isEqualTo("123");
+    }
+
+    @Test
+    @DisplayName("Should stop waiting for a stalled batch after a second timeout")
+    void shouldNotWaitForeverForStalledBatch() throws Exception {
+        // Given
+        writer = start(10, 1, new SimpleMeterRegistry(), Duration.ofMillis(100));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(loanService.saveAll(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            List<LoanDTO> loans = invocation.getArgument(0);
+            return loans.stream().map(this::created).collect(Collectors.toList());
+        });
+
+        // When
+        Future<LoanDTO> checkout = callers.submit(() -> writer.save(loan("123")));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        Throwable exception = catchThrowable(() -> checkout.get(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        // Then
+        assertThat(exception).hasCauseInstanceOf(BusinessException.class);
+        assertThat(exception.getCause()).hasFieldOrPropertyWithValue("statusCode", 503);
+    }
+
+    @Test
+    @DisplayName("Should drop a checkout that timed out while still queued")
+    void shouldDropTimedOutCheckout() throws Exception {
+        // Given
+        writer = start(10, 1, new SimpleMeterRegistry(), Duration.ofMillis(100));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(loanService.saveAll(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            List<LoanDTO> loans = invocation.getArgument(0);
+            return loans.stream().map(this::created).collect(Collectors.toList());
+        });
+        Future<LoanDTO> inBatch = callers.submit(() -> writer.save(loan("1")));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        Throwable exception = catchThrowable(() -> writer.save(loan("2")));
+        release.countDown();
+
+        // Then
+        assertThat(exception).hasFieldOrPropertyWithValue("statusCode", 503);
+        assertThat(inBatch.get(5, TimeUnit.SECONDS).getIsbn()).isEqualTo("1");
+        writer.stop();
+        verify(loanService, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should not queue a checkout once the writer is stopped")
+    void shouldRejectAfterStop() {
+        // Given
+        writer = start(10, 1);
+        writer.stop();
+
+        // When
+        Throwable exception = catchThrowable(() -> writer.save(loan("123")));
+
+        // Then
+        assertThat(exception)
+                .hasMessage("Too many checkouts, try again later")
+                .hasFieldOrPropertyWithValue("statusCode", 503);
+        verify(loanService, never()).saveAll(anyList());
+    }
+
+    private GroupCommitLoanWriter start(int queueCapacity, int batchSize) {
+        return start(queueCapacity, batchSize, new SimpleMeterRegistry());
+    }
+
+    private GroupCommitLoanWriter start(int queueCapacity, int batchSize, MeterRegistry registry) {
+        return start(queueCapacity, batchSize, registry, Duration.ofSeconds(10));
+    }
+
+    @SuppressWarnings("unchecked")
+    private GroupCommitLoanWriter start(int queueCapacity, int batchSize, MeterRegistry registry, Duration timeout) {
+        when(bookIsbnCache.existsByIsbn(anyString())).thenReturn(true);
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable()).thenReturn(registry);
+
+        GroupCommitLoanWriter writer = new GroupCommitLoanWriter(loanService, bookIsbnCache, meterRegistry,
+                queueCapacity, batchSize, Duration.ofSeconds(1), timeout);
+        writer.start();
+        return writer;
+    }
+
+    private LoanCheckoutResultDTO created(LoanDTO loan) {
+        return LoanCheckoutResultDTO.builder()
+                .isbn(loan.getIsbn())
+                .loan(loan)
+                .status(LoanCheckoutResultDTO.Status.CREATED)
+                .build();
+    }
+
+    private LoanDTO loan(String isbn) {
+        return LoanDTO.builder().isbn(isbn).customer("jonathan").build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.jonathanfrosto.tdd.services.overdue;
+
+import com.jonathanfrosto.tdd.domain.dto.KeysetCursor;
+import com.jonathanfrosto.tdd.domain.dto.LoanDTO;
+import com.jonathanfrosto.tdd.domain.entities.ScanCheckpoint;
+import com.jonathanfrosto.tdd.repositories.LoanRepository;
+import com.jonathanfrosto.tdd.repositories.ScanCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OverdueScannerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2021, 5, 20);
+    private static final LocalDate CUTOFF = TODAY.minusDays(14);
+
+    LoanRepository loanRepository;
+    ScanCheckpointRepository checkpointRepository;
+    ApplicationEventPublisher eventPublisher;
+
+    OverdueScanner overdueScanner;
+
+    @BeforeEach
+    void setUp() {
+        loanRepository = mock(LoanRepository.class);
+        checkpointRepository = mock(ScanCheckpointRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+
+        overdueScanner = new OverdueScanner(loanRepository, checkpointRepository, eventPublisher,
+                new OverduePolicy(Period.ofDays(14)), 2);
+    }
+
+    @Test
+    @DisplayName("Should publish the loans that became overdue since the checkpoint in batches")
+    void shouldScanSinceCheckpoint() {
+        // Given
+        LocalDate from = CUTOFF.minusDays(3);
+        when(checkpointRepository.findById(OverdueScanner.CHECKPOINT))
+                .thenReturn(Optional.of(new ScanCheckpoint(OverdueScanner.CHECKPOINT, from)));
+
+        LoanDTO first = loan(1L, from);
+        LoanDTO second = loan(2L, from.plusDays(1));
+        LoanDTO third = loan(3L, from.plusDays(2));
+        when(loanRepository.findOpenBetween(eq(from), eq(CUTOFF), any(KeysetCursor.class), eq(2)))
+                .thenReturn(Arrays.asList(first, second), Collections.singletonList(third));
+
+        // When
+        long overdue = overdueScanner.scan(TODAY);
+
+        // Then
+        assertThat(overdue).isEqualTo(3);
+
+        ArgumentCaptor<KeysetCursor> cursors = ArgumentCaptor.forClass(KeysetCursor.class);
+        verify(loanRepository, times(2)).findOpenBetween(eq(from), eq(CUTOFF), cursors.capture(), eq(2));
+        assertThat(cursors.getAllValues().get(0).isFirst()).isTrue();
+        assertThat(cursors.getAllValues().get(1).getId()).isEqualTo(2L);
+
+        ArgumentCaptor<OverdueLoansEvent> events = ArgumentCaptor.forClass(OverdueLoansEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).flatExtracting(OverdueLoansEvent::getLoans)
+                .containsExactly(first, second, third);
+
+        verify(checkpointRepository).save(new ScanCheckpoint(OverdueScanner.CHECKPOINT, CUTOFF));
+    }
+
+    @Test
+    @DisplayName("Should scan every open loan before the cutoff on the first run")
+    void shouldScanEverythingOnFirstRun() {
+        // Given
+        when(checkpointRepository.findById(OverdueScanner.CHECKPOINT)).thenReturn(Optional.empty());
+        when(loanRepository.findOpenBetween(isNull(), eq(CUTOFF), any(KeysetCursor.class), eq(2)))
+                .thenReturn(Collections.emptyList());
+
+        // When
+        long overdue = overdueScanner.scan(TODAY);
+
+        // Then
+        assertThat(overdue).isZero();
+        verify(eventPublisher, never()).publishEvent(any());
+        verify(checkpointRepository).save(new ScanCheckpoint(OverdueScanner.CHECKPOINT, CUTOFF));
+    }
+
+    @Test
+    @DisplayName("Should not read loans when the checkpoint is already at the cutoff")
+    void shouldSkipScannedDay() {
+        // Given
+        when(checkpointRepository.findById(OverdueScanner.CHECKPOINT))
+                .thenReturn(Optional.of(new ScanCheckpoint(OverdueScanner.CHECKPOINT, CUTOFF)));
+
+        // When
+        long overdue = overdueScanner.scan(TODAY);
+
+        // Then
+        assertThat(overdue).isZero();
+        verifyNoInteractions(loanRepository, eventPublisher);
+        verify(checkpointRepository, never()).save(any());
+    }
+
+    private LoanDTO loan(Long id, LocalDate loanDate) {
+        return LoanDTO.builder().id(id).isbn("isbn-" + id).customer("jonathan").loanDate(loanDate).returned(false).build();
+    }
+}
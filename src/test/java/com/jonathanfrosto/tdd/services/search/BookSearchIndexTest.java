@@ -0,0 +1,162 @@
+package com.jonathanfrosto.tdd.services.search;
+
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.domain.entities.Book;
+import com.jonathanfrosto.tdd.domain.mappers.BookMapper;
+import com.jonathanfrosto.tdd.repositories.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookSearchIndexTest {
+
+    BookRepository bookRepository;
+    BookSearchIndex bookSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        bookSearchIndex = new BookSearchIndex(bookRepository, new BookMapper(), 50, 100);
+        bookSearchIndex.index(Arrays.asList(
+                book(1L, "A alcateia", "Jonathan Anthony"),
+                book(2L, "O Senhor dos Anéis", "J. R. R. Tolkien"),
+                book(3L, "The Hobbit", "J. R. R. Tolkien"),
+                book(4L, "Tolkien: a biography", "Humphrey Carpenter")));
+    }
+
+    @Test
+    @DisplayName("Should match whole words ignoring case and accents")
+    void shouldMatchWords() {
+        assertThat(ids("ANEIS")).containsExactly(2L);
+        assertThat(ids("senhor aneis")).containsExactly(2L);
+        assertThat(ids("senhor hobbit")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should match prefixes and single typos")
+    void shouldMatchPrefixesAndTypos() {
+        assertThat(ids("hob")).containsExactly(3L);
+        assertThat(ids("alcatea")).containsExactly(1L);
+        assertThat(ids("tolkein")).containsExactlyInAnyOrder(2L, 3L, 4L);
+        assertThat(ids("zz")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should expand a token to at most the configured number of terms")
+    void shouldCapExpansions() {
+        BookSearchIndex capped = new BookSearchIndex(bookRepository, new BookMapper(), 2, 100);
+        capped.index(Arrays.asList(
+                book(1L, "Tolkien", "Humphrey Carpenter"),
+                book(2L, "Tolerance", "Humphrey Carpenter"),
+                book(3L, "Tollbooth", "Humphrey Carpenter")));
+
+        assertThat(capped.search("tol", PageRequest.of(0, 10)).getContent()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should rank name hits above author hits and exact hits above typos")
+    void shouldRank() {
+        assertThat(ids("tolkien")).containsExactly(4L, 2L, 3L);
+        assertThat(ids("tolkien hobbit")).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("Should reindex updated books and drop removed ones")
+    void shouldUpdateAndRemove() {
+        bookSearchIndex.index(book(3L, "The Silmarillion", "J. R. R. Tolkien"));
+        bookSearchIndex.remove(1L);
+
+        assertThat(ids("hobbit")).isEmpty();
+        assertThat(ids("silmarillion")).containsExactly(3L);
+        assertThat(ids("alcateia")).isEmpty();
+        assertThat(bookSearchIndex.size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should slice ranked hits")
+    void shouldSlice() {
+        Slice<BookDTO> first = bookSearchIndex.search("tolkien", PageRequest.of(0, 2));
+        Slice<BookDTO> last = bookSearchIndex.search("tolkien", PageRequest.of(1, 2));
+
+        assertThat(first.getContent()).extracting(BookDTO::getId).containsExactly(4L, 2L);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).extracting(BookDTO::getId).containsExactly(3L);
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should answer pages past the indexed books and huge sizes without sizing the ranking by them")
+    void shouldBoundPages() {
+        Slice<BookDTO> overflowing = bookSearchIndex.search("tolkien", PageRequest.of(Integer.MAX_VALUE / 2, 2000));
+        Slice<BookDTO> farAway = bookSearchIndex.search("tolkien", PageRequest.of(100000, 2000));
+        Slice<BookDTO> huge = bookSearchIndex.search("tolkien", PageRequest.of(0, Integer.MAX_VALUE));
+
+        assertThat(overflowing.getContent()).isEmpty();
+        assertThat(overflowing.hasNext()).isFalse();
+        assertThat(farAway.getContent()).isEmpty();
+        assertThat(farAway.hasNext()).isFalse();
+        assertThat(huge.getContent()).extracting(BookDTO::getId).containsExactly(4L, 2L, 3L);
+        assertThat(huge.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should keep serving the old index during a rebuild and keep changes committed while reading")
+    void shouldRebuild() {
+        // Given
+        List<Long> seenDuringRebuild = new ArrayList<>();
+        when(bookRepository.streamByExample(any(), anyInt())).thenReturn(Stream.of(
+                book(1L, "A alcateia", "Jonathan Anthony"),
+                book(3L, "The Hobbit", "J. R. R. Tolkien"),
+                book(5L, "Unfinished Tales", "J. R. R. Tolkien")).peek(book -> {
+            if (book.getId() == 3L) {
+                seenDuringRebuild.addAll(ids("tolkien"));
+                bookSearchIndex.remove(1L);
+                bookSearchIndex.index(book(3L, "The Silmarillion", "J. R. R. Tolkien"));
+            }
+        }));
+
+        // When
+        bookSearchIndex.rebuild();
+
+        // Then
+        assertThat(seenDuringRebuild).containsExactly(4L, 2L, 3L);
+        assertThat(ids("alcateia")).isEmpty();
+        assertThat(ids("hobbit")).isEmpty();
+        assertThat(ids("tolkien")).containsExactlyInAnyOrder(3L, 5L);
+        assertThat(bookSearchIndex.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should accept one edit or one swap of adjacent characters")
+    void shouldCompareWithOneEdit() {
+        assertThat(BookSearchIndex.isOneEditAway("tolkien", "tolkein")).isTrue();
+        assertThat(BookSearchIndex.isOneEditAway("hobbit", "hobit")).isTrue();
+        assertThat(BookSearchIndex.isOneEditAway("hobbit", "habbit")).isTrue();
+        assertThat(BookSearchIndex.isOneEditAway("hobbit", "hbobti")).isFalse();
+        assertThat(BookSearchIndex.isOneEditAway("hobbit", "hobbits!")).isFalse();
+    }
+
+    private List<Long> ids(String query) {
+        return bookSearchIndex.search(query, PageRequest.of(0, 10)).getContent().stream()
+                .map(BookDTO::getId)
+                .collect(Collectors.toList());
+    }
+
+    private Book book(Long id, String name, String author) {
+        return Book.builder().id(id).name(name).author(author).isbn(String.valueOf(id)).build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.jonathanfrosto.tdd.services.stats;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class LoanStatsCollectorTest {
+
+    LoanStatsCollector loanStatsCollector;
+
+    @BeforeEach
+    void setUp() {
+        loanStatsCollector = new LoanStatsCollector();
+    }
+
+    @Test
+    @DisplayName("Should count the loans of each book and the checkouts and returns of the day")
+    void shouldCount() {
+        // When
+        loanStatsCollector.recordCheckouts(Arrays.asList(1L, 2L, 1L, null));
+        loanStatsCollector.recordCheckout(1L);
+        loanStatsCollector.recordReturns(2);
+
+        // Then
+        LoanStatsCollector.Snapshot snapshot = loanStatsCollector.snapshot();
+        assertThat(snapshot.getLoansByBook()).containsOnly(entry(1L, 3L), entry(2L, 1L));
+        assertThat(snapshot.getCountsByDay().get(LocalDate.now())).containsExactly(4L, 2L);
+    }
+
+    @Test
+    @DisplayName("Should keep the counts made during a flush and drop the flushed ones after its commit")
+    void shouldFlush() throws InterruptedException {
+        // Given
+        loanStatsCollector.recordCheckout(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            Optional<LoanStatsCollector.Snapshot> flush = loanStatsCollector.beginFlush();
+            Thread desk = new Thread(() -> loanStatsCollector.recordCheckout(1L));
+            desk.start();
+            desk.join();
+
+            // Then
+            assertThat(flush).isPresent();
+            assertThat(loanStatsCollector.beginFlush()).isEmpty();
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            assertThat(loanStatsCollector.snapshot().getLoansByBook()).containsOnly(entry(1L, 2L));
+
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            assertThat(loanStatsCollector.snapshot().getLoansByBook()).containsOnly(entry(1L, 1L));
+            assertThat(loanStatsCollector.snapshot().getCountsByDay().get(LocalDate.now())).containsExactly(1L, 0L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Should stop tracking the books whose loans were all flushed")
+    void shouldDropFlushedBooks() {
+        // Given
+        loanStatsCollector.recordCheckouts(Arrays.asList(1L, 2L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            loanStatsCollector.beginFlush();
+            loanStatsCollector.recordCheckout(2L);
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Then
+        assertThat(loanStatsCollector.trackedBooks()).isEqualTo(1);
+        assertThat(loanStatsCollector.snapshot().getLoansByBook()).containsOnly(entry(2L, 1L));
+    }
+
+    @Test
+    @DisplayName("Should keep the counts of a flush that rolled back")
+    void shouldKeepCountsOnRollback() {
+        // Given
+        loanStatsCollector.recordCheckout(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            loanStatsCollector.beginFlush();
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Then
+        assertThat(loanStatsCollector.snapshot().getLoansByBook()).containsOnly(entry(1L, 1L));
+    }
+}
@@ -0,0 +1,99 @@
+package com.jonathanfrosto.tdd.web;
+
+import com.jonathanfrosto.tdd.controllers.BookController;
+import com.jonathanfrosto.tdd.domain.dto.BookDTO;
+import com.jonathanfrosto.tdd.exceptions.BusinessException;
+import com.jonathanfrosto.tdd.services.BookImportService;
+import com.jonathanfrosto.tdd.services.BookService;
+import com.jonathanfrosto.tdd.services.ExportService;
+import com.jonathanfrosto.tdd.services.LoanService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = BookController.class, properties = "request-offload.enabled=true")
+@AutoConfigureMockMvc
+class RequestOffloadTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    BookService bookService;
+
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    BookImportService bookImportService;
+
+    @MockBean
+    ExportService exportService;
+
+    @Test
+    @DisplayName("Should run the controller on the offload executor")
+    void offloadedRequest() throws Exception {
+        // Given
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(bookService.getById(1L)).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return BookDTO.builder().id(1L).name("A alcateia").isbn("123").build();
+        });
+
+        // When
+        MvcResult result = mockMvc.perform(get("/book/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.isbn", is("123")));
+        assertThat(thread.get()).startsWith("request-offload-");
+    }
+
+    @Test
+    @DisplayName("Should map exceptions thrown on the offload executor")
+    void offloadedRequestFailure() throws Exception {
+        // Given
+        when(bookService.getById(1L)).thenThrow(new BusinessException("Book not found", 404));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/book/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Should keep handlers that write the response on the container thread")
+    void exportNotOffloaded() throws Exception {
+        mockMvc.perform(get("/book/export"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk());
+    }
+}